@@ -0,0 +1,268 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * The anchor squares of a board with their cross checks, kept in flat
+ * primitive arrays indexed by the square numbers of the board (see
+ * Board.square) instead of as an Anchor object per square in a map. Which
+ * squares are anchors is a bitset, and the cross check masks and cross
+ * word points are int arrays, so the move search finds out everything
+ * about a square with an array read or two. The board keeps one of these
+ * up to date between turns, see Board.getAnchors.
+ */
+
+import java.util.Arrays;
+
+public class AnchorSet {
+    private final Board board;
+    private final long[] anchors; //bit i is set when square i is an anchor
+    private final int[] vChecks; //letters that form valid down words when playing across, bit i for 'a'+i
+    private final int[] hChecks; //letters that form valid across words when playing down
+    private final int[] vCrossSums; //points of the tiles above and below, -1 if there are none
+    private final int[] hCrossSums; //points of the tiles to the left and right, -1 if there are none
+    private int count;
+    //Old values of the squares changed while journaling, six ints each:
+    //the square, whether it was an anchor and its two checks and two sums
+    private boolean journaling;
+    private int[] journal;
+    private int journalSize;
+
+    /**
+     * @param board - board the anchors are on
+     */
+    AnchorSet(Board board) {
+        this.board = board;
+        int squares = board.getStride() * board.getStride();
+        anchors = new long[(squares + 63) >>> 6];
+        vChecks = new int[squares];
+        hChecks = new int[squares];
+        vCrossSums = new int[squares];
+        hCrossSums = new int[squares];
+    }
+
+    /**
+     * @param row - row on the board
+     * @param col - column on the board
+     * @return - index of the square
+     */
+    public int square(int row, int col) {
+        return board.square(row, col);
+    }
+
+    public int getRow(int square) {
+        return board.getRow(square);
+    }
+
+    public int getCol(int square) {
+        return board.getCol(square);
+    }
+
+    /**
+     * @return - how many anchors there are
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param square - index of a square
+     * @return - true if the square is an anchor
+     */
+    public boolean isAnchor(int square) {
+        return (anchors[square >>> 6] & (1L << square)) != 0;
+    }
+
+    /**
+     * Goes over the anchors in order of row and then column
+     * @param from - index of the square to start looking at
+     * @return - index of the first anchor at or after it, -1 if there is none
+     */
+    public int nextAnchor(int from) {
+        int word = from >>> 6;
+        if(word >= anchors.length) return -1;
+        long bits = anchors[word] & (-1L << from);
+        while(bits == 0) {
+            if(++word == anchors.length) return -1;
+            bits = anchors[word];
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * @return - the anchors, ordered by row and then column
+     */
+    public int[] toArray() {
+        int[] squares = new int[count];
+        for(int i = 0, square = nextAnchor(0); square >= 0; square = nextAnchor(square + 1)) squares[i++] = square;
+        return squares;
+    }
+
+    /**
+     * @return - bitmask of the letters that form legal ACROSS words if
+     * placed onto the anchor, bit i is set for 'a'+i
+     */
+    public int getHCheckMask(int square) {
+        return hChecks[square];
+    }
+
+    /**
+     * @return - bitmask of the letters that form legal DOWN words if
+     * placed onto the anchor, bit i is set for 'a'+i
+     */
+    public int getVCheckMask(int square) {
+        return vChecks[square];
+    }
+
+    /**
+     * @return - points of the tiles that a letter placed onto the anchor
+     * joins into a DOWN word when playing ACROSS, before the letter itself
+     * and the multipliers of the anchor are added, -1 if there is no such word
+     */
+    public int getVCrossSum(int square) {
+        return vCrossSums[square];
+    }
+
+    /**
+     * @return - points of the tiles that a letter placed onto the anchor
+     * joins into an ACROSS word when playing DOWN, -1 if there is no such word
+     */
+    public int getHCrossSum(int square) {
+        return hCrossSums[square];
+    }
+
+    /**
+     * Makes a square an anchor, or keeps it one, and computes its cross
+     * checks and cross word points
+     * @param lexicon - the lexicon words are checked against
+     * @param square - index of the square
+     */
+    void update(Lexicon lexicon, int square) {
+        save(square);
+        if(!isAnchor(square)) {
+            anchors[square >>> 6] |= 1L << square;
+            count++;
+        }
+        int stride = board.getStride();
+        vChecks[square] = crossCheck(board, lexicon, square, stride);
+        hChecks[square] = crossCheck(board, lexicon, square, 1);
+        vCrossSums[square] = board.getCrossScore(square, stride);
+        hCrossSums[square] = board.getCrossScore(square, 1);
+    }
+
+    /**
+     * @param square - index of a square that is no longer an anchor
+     */
+    void remove(int square) {
+        if(!isAnchor(square)) return;
+        save(square);
+        anchors[square >>> 6] &= ~(1L << square);
+        count--;
+    }
+
+    /**
+     * Makes no square an anchor
+     */
+    void clear() {
+        if(journaling) {
+            for(int square = nextAnchor(0); square >= 0; square = nextAnchor(square + 1)) remove(square);
+            return;
+        }
+        for(int i = 0; i < anchors.length; i++) anchors[i] = 0;
+        count = 0;
+    }
+
+    /**
+     * @param journaling - whether to remember the old values of the
+     *                   squares that change, so they can be rolled back.
+     *                   Turning it off forgets what was remembered.
+     */
+    void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+        if(journaling && journal == null) journal = new int[6 * 64];
+        if(!journaling) journalSize = 0;
+    }
+
+    /**
+     * @return - mark to roll back to, everything changed after it can be undone
+     */
+    int mark() {
+        return journalSize;
+    }
+
+    /**
+     * Puts back the old values of every square changed since the mark,
+     * latest change first
+     * @param mark - mark from mark()
+     */
+    void rollback(int mark) {
+        while(journalSize > mark) {
+            journalSize -= 6;
+            int square = journal[journalSize];
+            boolean was = journal[journalSize + 1] != 0;
+            if(was != isAnchor(square)) {
+                anchors[square >>> 6] ^= 1L << square;
+                count += was ? 1 : -1;
+            }
+            vChecks[square] = journal[journalSize + 2];
+            hChecks[square] = journal[journalSize + 3];
+            vCrossSums[square] = journal[journalSize + 4];
+            hCrossSums[square] = journal[journalSize + 5];
+        }
+    }
+
+    /**
+     * Remembers the values of a square before it changes, if journaling
+     * @param square - index of the square
+     */
+    private void save(int square) {
+        if(!journaling) return;
+        if(journalSize + 6 > journal.length) journal = Arrays.copyOf(journal, 2 * journal.length);
+        journal[journalSize] = square;
+        journal[journalSize + 1] = isAnchor(square) ? 1 : 0;
+        journal[journalSize + 2] = vChecks[square];
+        journal[journalSize + 3] = hChecks[square];
+        journal[journalSize + 4] = vCrossSums[square];
+        journal[journalSize + 5] = hCrossSums[square];
+        journalSize += 6;
+    }
+
+    /**
+     * Finds the letters that make a word with the tiles before and after
+     * a square along a line. The tiles before it are walked in the lexicon
+     * once, then every child of the node reached is walked through the
+     * tiles after it. Only reads the board.
+     * @param board - the board
+     * @param lexicon - the lexicon words are checked against
+     * @param square - index of the square
+     * @param step - how far the next square along the line is, 1 across
+     *             and the stride of the board down
+     * @return - bitmask of the letters, bit i for 'a'+i, every letter if
+     * both neighbours on the line are empty
+     */
+    private static int crossCheck(Board board, Lexicon lexicon, int square, int step) {
+        if(!board.hasTile(square - step) && !board.hasTile(square + step)) return Lexicon.ALL_LETTERS;
+
+        lexicon = lexicon.snapshot();
+        //go to the start of the tiles before the square
+        int start = square;
+        while(board.hasTile(start - step)) start -= step;
+        int node = lexicon.getRoot();
+        for(int next = start; next != square && node != Lexicon.NONE; next += step) {
+            node = lexicon.getChild(node, Character.toLowerCase(board.getLetter(next)));
+        }
+        if(node == Lexicon.NONE) return 0;
+
+        int check = 0;
+        int candidates = lexicon.getChildMask(node) & Lexicon.ALL_LETTERS;
+        while(candidates != 0) {
+            int index = Integer.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            int child = lexicon.getChild(node, (char)('a' + index));
+            for(int next = square + step; child != Lexicon.NONE && board.hasTile(next); next += step) {
+                child = lexicon.getChild(child, Character.toLowerCase(board.getLetter(next)));
+            }
+            if(child != Lexicon.NONE && lexicon.isTerminal(child)) check |= 1 << index;
+        }
+        return check;
+    }
+}
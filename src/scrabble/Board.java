@@ -8,6 +8,8 @@ package scrabble;
  * and see if a word on the board is in a given dictionary.
  */
 
+import java.util.Arrays;
+
 public class Board {
     /**
      * Representing a direction in which a word can be placed onto the board,
@@ -18,17 +20,113 @@ public class Board {
         DOWN
     }
 
-    private BoardTile[][] board; //All operations w/ these are zero-indexed
+    //what a square holds, kept in states
+    static final byte EMPTY = 0;
+    static final byte BORDER = 1; //the ring of squares around the board
+    static final byte NEW = 2;
+    static final byte FILLED = 3;
+
     private int size;
+    private final int stride; //squares in a row, the board plus a border square on each side
+    //The squares are kept in flat arrays, square (row, col) at (row+1)*stride + col+1,
+    //with a ring of border squares around the board so that the neighbours of
+    //any square on the board can be read without checking bounds
+    private final byte[] letters; //letter on the square, 0 if empty, uppercase for a blank
+    private final byte[] states;
+    private final byte[] charMultipliers;
+    private final byte[] wordMultipliers;
+    private final BoardTile[][] tiles; //views of the squares
+    //Which squares have a tile, one long per row and per column with bit i
+    //for square i of the line, for boards of up to 64 squares a side. Entry
+    //0 and size+1 are for the border and stay empty. Null on bigger boards.
+    private final long[] rowTiles;
+    private final long[] colTiles;
+    private long hash; //Zobrist hash of the size, multipliers and tiles, see getHash
+    private int newTiles; //tiles placed but not locked
+    //Points of the locked tiles that a tile on a square joins into a word
+    //along a line, before multipliers, -1 if there are none on either side.
+    //Across for hCrossScores and down for vCrossScores. Worked out a whole
+    //line at a time, and only for lines that a tile was locked into or
+    //taken off since, see getCrossScore.
+    private final int[] hCrossScores;
+    private final int[] vCrossScores;
+    private final boolean[] staleRows;
+    private final boolean[] staleCols;
+    private AnchorSet anchors; //null until first asked for
+    private Lexicon checkedLexicon; //lexicon the cross checks of the anchors are for
+    private boolean emptyAnchors; //whether the anchors are for an empty board
+    private int[] locked; //squares locked since the anchors were last updated
+    private int lockedCount;
+    private long[] changed; //squares whose cross checks need updating, bit i for square i
+    //What apply did, so undo can take it back. The squares tiles were put
+    //on, oldest first, and per applied move four ints: where its squares
+    //start, the anchor journal mark (-1 if there were no anchors yet), the
+    //locked count and emptyAnchors, plus the lexicon of the anchors.
+    private int[] undoSquares;
+    private int undoSquareCount;
+    private int[] undoFrames;
+    private Lexicon[] undoLexicons;
+    private int undoDepth;
 
     public Board(int size) {
-        board = new BoardTile[size][size];
         this.size = size;
+        stride = size + 2;
+        letters = new byte[stride * stride];
+        states = new byte[stride * stride];
+        charMultipliers = new byte[stride * stride];
+        wordMultipliers = new byte[stride * stride];
+        Arrays.fill(states, BORDER);
+        Arrays.fill(charMultipliers, (byte)1);
+        Arrays.fill(wordMultipliers, (byte)1);
+        tiles = new BoardTile[size][size];
         for(int i = 0; i < size; i++) {
             for(int j = 0; j < size; j++) {
-                board[i][j] = new BoardTile(i,j);
+                states[square(i, j)] = EMPTY;
+                tiles[i][j] = new BoardTile(i,j,this);
             }
         }
+        locked = new int[16];
+        undoSquares = new int[16];
+        undoFrames = new int[16];
+        undoLexicons = new Lexicon[4];
+        rowTiles = size <= 64 ? new long[size + 2] : null;
+        colTiles = size <= 64 ? new long[size + 2] : null;
+        hash = Zobrist.key(1L << 40 | size);
+        hCrossScores = new int[stride * stride];
+        vCrossScores = new int[stride * stride];
+        staleRows = new boolean[size];
+        staleCols = new boolean[size];
+        Arrays.fill(staleRows, true);
+        Arrays.fill(staleCols, true);
+    }
+
+    /**
+     * A 64-bit Zobrist hash of everything on the board that a move search
+     * looks at: the size, the multipliers and the tiles, whether locked or
+     * not. It is kept up to date as tiles are placed, locked and cleared, a
+     * xor or two per change, so it costs nothing to ask for. Boards that
+     * look the same hash the same, and different boards almost never do.
+     * @return - the hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return - Zobrist key of the tile on a square, 0 if there is none
+     */
+    private long tileKey(int square) {
+        if(states[square] < NEW) return 0;
+        long id = (long)square << 10 | (states[square] == FILLED ? 256 : 0) | letters[square] & 0xFF;
+        return Zobrist.key(id);
+    }
+
+    /**
+     * @param kind - 512 for word multipliers, 768 for letter multipliers
+     * @return - Zobrist key of a multiplier on a square, 0 for no multiplier
+     */
+    private static long multiplierKey(int square, int kind, int multiplier) {
+        return multiplier == 1 ? 0 : Zobrist.key((long)square << 10 | kind | multiplier & 0xFF);
     }
 
     /**
@@ -40,7 +138,7 @@ public class Board {
      */
     public void placeTile(int row, int col, char data) {
         if(row >= size || col >= size || row < 0 || col < 0) return;
-        board[row][col].setData(data);
+        setLetter(square(row, col), data);
     }
 
     /**
@@ -51,7 +149,470 @@ public class Board {
      */
     public BoardTile getTile(int row, int col) {
         if (row >= size || col >= size || row < 0 || col < 0) return null;
-        return board[row][col];
+        return tiles[row][col];
+    }
+
+    /**
+     * @param row - row on the board, -1 and size for the border
+     * @param col - column on the board, -1 and size for the border
+     * @return - index of the square in the arrays of the board
+     */
+    int square(int row, int col) {
+        return (row + 1) * stride + col + 1;
+    }
+
+    int getRow(int square) {
+        return square / stride - 1;
+    }
+
+    int getCol(int square) {
+        return square % stride - 1;
+    }
+
+    /**
+     * @return - how far apart the squares of two rows next to each other
+     * are, the step for going down a column
+     */
+    int getStride() {
+        return stride;
+    }
+
+    /**
+     * Points of the locked tiles right before and after a square along a
+     * line, which a tile put on the square joins into a word with. Lines
+     * are only added up again after a tile was locked into them or taken
+     * off them, so scoring a cross word costs an array read.
+     * @param square - index of a square on the board
+     * @param step - how far the next square along the line is, 1 across
+     *             and the stride down
+     * @return - the points before multipliers, -1 if there are no locked
+     * tiles next to the square along the line
+     */
+    int getCrossScore(int square, int step) {
+        if(step == 1) {
+            int row = getRow(square);
+            if(staleRows[row]) {
+                scoreLine(square(row, 0), 1, hCrossScores);
+                staleRows[row] = false;
+            }
+            return hCrossScores[square];
+        }
+        int col = getCol(square);
+        if(staleCols[col]) {
+            scoreLine(square(0, col), stride, vCrossScores);
+            staleCols[col] = false;
+        }
+        return vCrossScores[square];
+    }
+
+    /**
+     * Works out the cross scores of every square of a line, the locked
+     * tiles before each square on the way forward and the ones after it
+     * on the way back
+     * @param first - index of the first square of the line
+     * @param step - how far the next square along the line is
+     * @param scores - where the cross scores of the line go
+     */
+    private void scoreLine(int first, int step, int[] scores) {
+        int last = first;
+        int run = -1; //points of the locked tiles right behind, -1 for none
+        for(int square = first; states[square] != BORDER; square += step) {
+            last = square;
+            if(states[square] == FILLED) run = Math.max(run, 0) + getScore(square);
+            else {
+                scores[square] = run;
+                run = -1;
+            }
+        }
+        run = -1;
+        for(int square = last; states[square] != BORDER; square -= step) {
+            if(states[square] == FILLED) {
+                run = Math.max(run, 0) + getScore(square);
+                scores[square] = -1;
+            }
+            else {
+                int before = scores[square];
+                scores[square] = before < 0 && run < 0 ? -1 : Math.max(before, 0) + Math.max(run, 0);
+                run = -1;
+            }
+        }
+    }
+
+    /**
+     * Marks the row and column of a square for their cross scores to be
+     * worked out again, after a locked tile there came or went
+     * @param square - index of the square
+     */
+    private void linesChanged(int square) {
+        staleRows[getRow(square)] = true;
+        staleCols[getCol(square)] = true;
+    }
+
+    /**
+     * @return - true if the square is on the board and has no tile
+     */
+    boolean isEmpty(int square) {
+        return states[square] == EMPTY;
+    }
+
+    /**
+     * @return - true if the square is on the border around the board
+     */
+    boolean isBorder(int square) {
+        return states[square] == BORDER;
+    }
+
+    /**
+     * @return - true if there is a tile on the square, new or filled
+     */
+    boolean hasTile(int square) {
+        return states[square] >= NEW;
+    }
+
+    /**
+     * @return - true if the tile on the square was placed this turn
+     */
+    boolean isNew(int square) {
+        return states[square] == NEW;
+    }
+
+    /**
+     * @return - letter on the square, '\0' if there is none
+     */
+    char getLetter(int square) {
+        return (char)letters[square];
+    }
+
+    /**
+     * @return - whether the square is empty, new, or filled
+     */
+    BoardTile.State getState(int square) {
+        if(states[square] == NEW) return BoardTile.State.NEW;
+        if(states[square] == FILLED) return BoardTile.State.FILLED;
+        return BoardTile.State.EMPTY;
+    }
+
+    /**
+     * @return - points of the tile on the square, with the letter
+     * multiplier if the tile is new
+     */
+    int getScore(int square) {
+        if(states[square] < NEW) return 0;
+        int score = BoardTile.getLetterScore((char)letters[square]);
+        return states[square] == NEW ? score * charMultipliers[square] : score;
+    }
+
+    /**
+     * @return - word multiplier of the square, 1 if a tile is locked on it
+     */
+    int getWordMultiplier(int square) {
+        return states[square] == FILLED ? 1 : wordMultipliers[square];
+    }
+
+    /**
+     * @return - letter multiplier of the square, 1 if a tile is locked on it
+     */
+    int getCharMultiplier(int square) {
+        return states[square] == FILLED ? 1 : charMultipliers[square];
+    }
+
+    void setWordMultiplier(int square, int multiplier) {
+        hash ^= multiplierKey(square, 512, wordMultipliers[square]);
+        wordMultipliers[square] = (byte)multiplier;
+        hash ^= multiplierKey(square, 512, wordMultipliers[square]);
+    }
+
+    void setCharMultiplier(int square, int multiplier) {
+        hash ^= multiplierKey(square, 768, charMultipliers[square]);
+        charMultipliers[square] = (byte)multiplier;
+        hash ^= multiplierKey(square, 768, charMultipliers[square]);
+    }
+
+    /**
+     * Puts a letter on a square as a new tile, unless a tile is locked there
+     * @param square - index of the square
+     * @param letter - the letter, uppercase for a blank
+     */
+    void setLetter(int square, char letter) {
+        if(states[square] == FILLED || states[square] == BORDER) return;
+        if(states[square] == EMPTY) {
+            setOccupied(square, true);
+            newTiles++;
+        }
+        hash ^= tileKey(square);
+        letters[square] = (byte)letter;
+        states[square] = NEW;
+        hash ^= tileKey(square);
+    }
+
+    /**
+     * Takes the tile off a square unless it is locked
+     * @param square - index of the square
+     */
+    void clearSquare(int square) {
+        if(states[square] != NEW) return;
+        setOccupied(square, false);
+        newTiles--;
+        hash ^= tileKey(square);
+        letters[square] = 0;
+        states[square] = EMPTY;
+    }
+
+    /**
+     * Updates the row and column bits of a square
+     * @param square - index of the square
+     * @param occupied - whether there is a tile on it now
+     */
+    private void setOccupied(int square, boolean occupied) {
+        if(rowTiles == null) return;
+        int row = getRow(square);
+        int col = getCol(square);
+        if(occupied) {
+            rowTiles[row + 1] |= 1L << col;
+            colTiles[col + 1] |= 1L << row;
+        }
+        else {
+            rowTiles[row + 1] &= ~(1L << col);
+            colTiles[col + 1] &= ~(1L << row);
+        }
+    }
+
+    /**
+     * Locks the new tile on a square, so it stays for the rest of the game
+     * @param square - index of the square
+     */
+    void lockSquare(int square) {
+        if(states[square] != NEW) return;
+        newTiles--;
+        hash ^= tileKey(square);
+        states[square] = FILLED;
+        hash ^= tileKey(square);
+        linesChanged(square);
+        if(lockedCount == locked.length) locked = Arrays.copyOf(locked, 2 * locked.length);
+        locked[lockedCount++] = square;
+    }
+
+    /**
+     * Plays a move onto the board: puts its letters on the squares that
+     * are empty and locks them, and brings the anchors and cross checks up
+     * to date if they are being kept. The move can be taken back with undo,
+     * so a search can play many moves ahead on one board. Moves are taken
+     * back last first, and other changes to the board made in between have
+     * to be taken back before undo is called.
+     * @param move - the move, uppercase letters are blanks
+     * @return - how many tiles were put on the board
+     */
+    public int apply(MoveInfo move) {
+        if(anchors != null) getAnchors(checkedLexicon);
+        if(4 * (undoDepth + 1) > undoFrames.length) {
+            undoFrames = Arrays.copyOf(undoFrames, 2 * undoFrames.length);
+            undoLexicons = Arrays.copyOf(undoLexicons, 2 * undoLexicons.length);
+        }
+        int frame = 4 * undoDepth;
+        undoFrames[frame] = undoSquareCount;
+        undoFrames[frame + 1] = anchors == null ? -1 : anchors.mark();
+        undoFrames[frame + 2] = lockedCount;
+        undoFrames[frame + 3] = emptyAnchors ? 1 : 0;
+        undoLexicons[undoDepth++] = checkedLexicon;
+        if(anchors != null) anchors.setJournaling(true);
+
+        String word = move.getWord();
+        int step = move.getDirection() == Direction.ACROSS ? 1 : stride;
+        int square = square(move.getRow(), move.getCol());
+        int placed = 0;
+        for(int i = 0; i < word.length() && states[square] != BORDER; i++, square += step) {
+            if(states[square] != EMPTY) continue;
+            setLetter(square, word.charAt(i));
+            lockSquare(square);
+            if(undoSquareCount == undoSquares.length) undoSquares = Arrays.copyOf(undoSquares, 2 * undoSquares.length);
+            undoSquares[undoSquareCount++] = square;
+            placed++;
+        }
+        if(anchors != null) getAnchors(checkedLexicon);
+        return placed;
+    }
+
+    /**
+     * Takes back the last move played with apply: its tiles come off the
+     * board, and the anchors and cross checks it changed get their old
+     * values back. Takes time in proportion to the size of the move.
+     * @return - false if there was no move to take back
+     */
+    public boolean undo() {
+        if(undoDepth == 0) return false;
+        int frame = 4 * --undoDepth;
+        int start = undoFrames[frame];
+        for(int i = undoSquareCount - 1; i >= start; i--) removeTile(undoSquares[i]);
+        undoSquareCount = start;
+        lockedCount = undoFrames[frame + 2];
+        //anchors made after the move have nothing to roll back to, they are
+        //dropped and made again from scratch the next time they are asked for
+        if(anchors != null && undoFrames[frame + 1] < 0) anchors = null;
+        else if(anchors != null) {
+            anchors.rollback(undoFrames[frame + 1]);
+            checkedLexicon = undoLexicons[undoDepth];
+            emptyAnchors = undoFrames[frame + 3] != 0;
+            if(undoDepth == 0) anchors.setJournaling(false);
+        }
+        undoLexicons[undoDepth] = null;
+        return true;
+    }
+
+    /**
+     * @return - how many moves played with apply can be taken back
+     */
+    public int getUndoDepth() {
+        return undoDepth;
+    }
+
+    /**
+     * Takes a tile off a square whether it is locked or not
+     * @param square - index of the square
+     */
+    private void removeTile(int square) {
+        if(states[square] < NEW) return;
+        setOccupied(square, false);
+        if(states[square] == NEW) newTiles--;
+        else linesChanged(square);
+        hash ^= tileKey(square);
+        letters[square] = 0;
+        states[square] = EMPTY;
+    }
+
+    /**
+     * Get the anchor squares of the board with their cross checks. They are
+     * kept from one call to the next and only the ones next to the words
+     * that tiles were locked into since the last call are recomputed, so
+     * the cost of a call depends on how many tiles were placed rather than
+     * on the size of the board. Everything is recomputed when asked with a
+     * different lexicon. Tiles placed this turn that are not locked yet
+     * count like locked ones when the anchors are computed from scratch,
+     * but don't cause any update until they are locked, so the anchors
+     * should only be asked for when no tiles are waiting to be locked.
+     * @param lexicon - the lexicon the cross checks are checked against
+     * @return - the anchors, must not be changed by the caller
+     */
+    public AnchorSet getAnchors(Lexicon lexicon) {
+        if(anchors == null || lexicon != checkedLexicon || (emptyAnchors && lockedCount > 0)) {
+            if(anchors == null) {
+                anchors = new AnchorSet(this);
+                changed = new long[(stride * stride + 63) >>> 6];
+            }
+            findAnchors(lexicon);
+            checkedLexicon = lexicon;
+            emptyAnchors = isEmptyBoard();
+            lockedCount = 0;
+            return anchors;
+        }
+        if(lockedCount == 0) return anchors;
+
+        //squares whose cross words went through a locked tile
+        for(int i = 0; i < lockedCount; i++) {
+            int square = locked[i];
+            anchors.remove(square);
+            addWordEnd(square, -stride);
+            addWordEnd(square, stride);
+            addWordEnd(square, -1);
+            addWordEnd(square, 1);
+        }
+        lockedCount = 0;
+        for(int i = 0; i < changed.length; i++) {
+            while(changed[i] != 0) {
+                int square = (i << 6) + Long.numberOfTrailingZeros(changed[i]);
+                changed[i] &= changed[i] - 1;
+                anchors.update(lexicon, square);
+            }
+        }
+        return anchors;
+    }
+
+    /**
+     * Recomputes every anchor from scratch: the empty squares next to a
+     * tile, or the middle square if the board is empty. With the row bits
+     * the anchors of a whole row are found at once, as the squares next to
+     * a tile of the row (the row shifted left and right) or of the rows
+     * above and below, minus the squares that have a tile.
+     * @param lexicon - the lexicon the cross checks are checked against
+     */
+    private void findAnchors(Lexicon lexicon) {
+        anchors.clear();
+        if(rowTiles != null) {
+            long line = size == 64 ? -1L : (1L << size) - 1;
+            for(int i = 0; i < size; i++) {
+                long tiles = rowTiles[i + 1];
+                long next = (tiles << 1) | (tiles >>> 1) | rowTiles[i] | rowTiles[i + 2];
+                long found = next & ~tiles & line;
+                while(found != 0) {
+                    anchors.update(lexicon, square(i, Long.numberOfTrailingZeros(found)));
+                    found &= found - 1;
+                }
+            }
+        }
+        else {
+            for(int i = 0; i < size; i++) {
+                for(int square = square(i, 0); square < square(i, size); square++) {
+                    if(states[square] != EMPTY) continue;
+                    if(hasTile(square - stride) || hasTile(square + stride) || hasTile(square - 1) || hasTile(square + 1)) {
+                        anchors.update(lexicon, square);
+                    }
+                }
+            }
+        }
+        if(anchors.getCount() == 0 && isEmptyBoard()) {
+            anchors.update(lexicon, square(size/2, size/2));
+        }
+    }
+
+    /**
+     * Walks from a tile over the tiles next to it in one direction and
+     * marks the first empty square reached as changed
+     * @param square - square of the tile to start from
+     * @param step - how far the next square along the line is
+     */
+    private void addWordEnd(int square, int step) {
+        if(rowTiles != null) {
+            int row = getRow(square);
+            int col = getCol(square);
+            if(step == 1 || step == -1) square = square(row, runEnd(rowTiles[row + 1], col, step > 0));
+            else square = square(runEnd(colTiles[col + 1], row, step > 0), col);
+        }
+        else {
+            square += step;
+            while(hasTile(square)) square += step;
+        }
+        if(states[square] == BORDER) return;
+        changed[square >>> 6] |= 1L << square;
+    }
+
+    /**
+     * Finds where a run of tiles on a line ends
+     * @param line - bits of the tiles of a row or column
+     * @param from - position of a tile of the run on the line
+     * @param forward - true to look after it, false to look before it
+     * @return - position of the first empty square past the run, -1 or
+     * size if the run reaches the edge of the board
+     */
+    private int runEnd(long line, int from, boolean forward) {
+        if(forward) return Math.min(size, from + Long.numberOfTrailingZeros(~line >>> from));
+        return Math.max(-1, from - Long.numberOfLeadingZeros(~line << (63 - from)));
+    }
+
+    /**
+     * @return - true if there is no tile on the board at all
+     */
+    private boolean isEmptyBoard() {
+        if(rowTiles != null) {
+            for(long tiles : rowTiles) {
+                if(tiles != 0) return false;
+            }
+            return true;
+        }
+        for(int i = 0; i < size; i++) {
+            for(int square = square(i, 0); square < square(i, size); square++) {
+                if(hasTile(square)) return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -68,29 +629,25 @@ public class Board {
      * @param row - row where some part of the word is
      * @param col - column where some part of the word is
      * @param direction - direction in which the word is going
-     * @param root - root of the Trie representing the lexicon
+     * @param lexicon - the lexicon to look the word up in
      * @return - true if the word on the board is in the dictionary, false
      * otherwise
      */
-    public boolean validWord(int row, int col, Direction direction, TrieNode root) {
+    public boolean validWord(int row, int col, Direction direction, Lexicon lexicon) {
+        lexicon = lexicon.snapshot();
+        int step = direction == Direction.ACROSS ? 1 : stride;
         //go to start of word
-        if(direction == Direction.ACROSS) {
-            while(col > 0 && !getTile(row, col-1).isEmpty()) col--;
-        }
-        else {
-            while(row > 0 && !getTile(row-1, col).isEmpty()) row--;
-        }
+        int square = square(row, col);
+        while(hasTile(square - step)) square -= step;
 
-        TrieNode currNode = root;
-        while(row < size && col < size && !getTile(row,col).isEmpty()) {
-            BoardTile tile = getTile(row,col);
-            currNode = currNode.getChild(Character.toLowerCase(tile.getData()));
-            if(currNode == null) break;
-            if(direction == Direction.ACROSS) col++;
-            else row++;
+        int currNode = lexicon.getRoot();
+        while(hasTile(square)) {
+            currNode = lexicon.getChild(currNode, Character.toLowerCase(getLetter(square)));
+            if(currNode == Lexicon.NONE) break;
+            square += step;
         }
 
-        return currNode != null && currNode.isTerminalNode();
+        return currNode != Lexicon.NONE && lexicon.isTerminal(currNode);
     }
 
     /**
@@ -109,40 +666,33 @@ public class Board {
         int total = 0;
         int connectedTotal = 0;
         int wordMultiplier = 1;
+        int step = direction == Direction.ACROSS ? 1 : stride;
+        int cross = direction == Direction.ACROSS ? stride : 1;
 
         //move to start of word
-        if(direction == Direction.ACROSS) {
-            while(col > 0 && !getTile(row, col-1).isEmpty()) col--;
-        }
-        else {
-            while(row > 0 && !getTile(row-1,col).isEmpty()) row--;
-        }
-
-        while(row < size && col < size && !getTile(row,col).isEmpty()) {
-            total += getTile(row,col).getScore();
-            wordMultiplier *= getTile(row, col).getWordMultiplier();
-
-            if(direction == Direction.ACROSS) {
-                BoardTile tile1 = getTile(row+1, col);
-                BoardTile tile2 = getTile(row-1, col);
-                //If one of the tiles above/below the current one is not
-                //empty AND the current tile is new, count connected word
-                boolean condition = (tile1 != null && !tile1.isEmpty());
-                condition |= (tile2 != null && !tile2.isEmpty());
-                condition &= getTile(row,col).getState() == BoardTile.State.NEW;
-                if(condition) connectedTotal += nonRecurScore(row,col,Direction.DOWN);
-                col++;
+        int start = square(row, col);
+        while(hasTile(start - step)) start -= step;
+
+        int placed = 0;
+        for(int square = start; hasTile(square); square += step) {
+            total += getScore(square);
+            wordMultiplier *= getWordMultiplier(square);
+            //A new tile with locked tiles on either side makes a connected
+            //word, worth the cached points of those plus the new tile
+            if(states[square] == NEW) {
+                placed++;
+                int crossScore = getCrossScore(square, cross);
+                if(crossScore >= 0) connectedTotal += (crossScore + getScore(square)) * getWordMultiplier(square);
             }
-            else if(direction == Direction.DOWN) {
-                BoardTile tile1 = getTile(row, col+1);
-                BoardTile tile2 = getTile(row, col-1);
-                //If one of the tiles to the right/left is not empty
-                //AND the current tile is new, count connected word score
-                boolean condition = (tile1 != null && !tile1.isEmpty());
-                condition |= tile2 != null && !tile2.isEmpty();
-                condition &= getTile(row,col).getState() == BoardTile.State.NEW;
-                if(condition) connectedTotal += nonRecurScore(row,col,Direction.ACROSS);
-                row++;
+        }
+        //The cached points only count locked tiles, if there are new tiles
+        //off the word the connected words have to be walked instead
+        if(placed != newTiles) {
+            connectedTotal = 0;
+            for(int square = start; hasTile(square); square += step) {
+                if(states[square] == NEW && (hasTile(square - cross) || hasTile(square + cross))) {
+                    connectedTotal += nonRecurScore(square, cross);
+                }
             }
         }
 
@@ -152,30 +702,24 @@ public class Board {
     /**
      * Used for counting addition words formed when placing something
      * down onto the board. Basically the same as the original method, just
-     * doesn't recur into connected words.
-     * @param row - row where part of the connected word is
-     * @param col - column where part of the connected word is
-     * @param direction - direction in which to go
+     * doesn't recur into connected words. Only needed when the new tiles
+     * are not all in one line, otherwise the cross scores are used.
+     * @param square - square where part of the connected word is
+     * @param step - how far the next square of the connected word is
      * @return - returns total score of the connected word, multipliers
      * and all
      */
-    private int nonRecurScore(int row, int col, Direction direction) {
+    private int nonRecurScore(int square, int step) {
         int total = 0;
         int wordMultiplier = 1;
         //move to start of word
-        if(direction == Direction.ACROSS) {
-            while(col > 0 && !getTile(row, col-1).isEmpty()) col--;
-        }
-        else {
-            while(row > 0 && !getTile(row-1,col).isEmpty()) row--;
-        }
+        while(hasTile(square - step)) square -= step;
 
         //Move across word and count score
-        while(row < size && col < size && !getTile(row,col).isEmpty()) {
-            total += getTile(row,col).getScore();
-            wordMultiplier *= getTile(row,col).getWordMultiplier();
-            if(direction == Direction.ACROSS) col++;
-            else row++;
+        while(hasTile(square)) {
+            total += getScore(square);
+            wordMultiplier *= getWordMultiplier(square);
+            square += step;
         }
 
         return total * wordMultiplier;
@@ -190,22 +734,18 @@ public class Board {
      * @return - string representing the word on the board
      */
     public String getWord(int row, int col, Direction direction) {
-        String word = "";
+        StringBuilder word = new StringBuilder();
+        int step = direction == Direction.ACROSS ? 1 : stride;
         //move to start of word
-        if(direction == Direction.ACROSS) {
-            while(col > 0 && !getTile(row, col-1).isEmpty()) col--;
-        }
-        else {
-            while(row > 0 && !getTile(row-1,col).isEmpty()) row--;
-        }
+        int square = square(row, col);
+        while(hasTile(square - step)) square -= step;
 
-        while(row < size && col < size && !getTile(row,col).isEmpty()) {
-            word += getTile(row,col).getData();
-            if(direction == Direction.ACROSS) col++;
-            else row++;
+        while(hasTile(square)) {
+            word.append(getLetter(square));
+            square += step;
         }
 
-        return word;
+        return word.toString();
     }
 
     /**
@@ -215,7 +755,7 @@ public class Board {
         StringBuilder string = new StringBuilder();
         for(int i = 0; i < size; i++) {
             for(int j = 0; j < size; j++) {
-                string.append(board[i][j]);
+                string.append(tiles[i][j]);
                 if(j != size-1) string.append(" ");
             }
             string.append('\n');
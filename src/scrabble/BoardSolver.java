@@ -1,11 +1,22 @@
 package scrabble;
 
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.Scanner;
 
 public class BoardSolver {
     private Scanner sc;
-    private TrieNode root;
+    private Lexicon lexicon;
+    private Lexicon gaddag;
+    private Lexicon defaultLexicon;
+    private Lexicon defaultGaddag;
+    private LexiconRegistry registry;
+    private String lexiconName; //named lexicon in use, null for the default
+    private boolean parallel;
+    private boolean pruning;
+    private LeaveTable leaves; //null to solve for the highest score
+    private int top; //how many of the best moves to list, 0 for none
+    private MoveCache cache; //moves of the boards solved so far, null for none
 
     /**
      * Used for reading from standard input
@@ -58,7 +69,12 @@ public class BoardSolver {
      * @param board - board to solve
      */
     private void outputSolution(Board board) {
-        ComputerPlayer player = new ComputerPlayer(board, root);
+        ComputerPlayer player = new ComputerPlayer(board, lexicon);
+        player.setGaddag(gaddag);
+        player.setParallel(parallel);
+        player.setPruning(pruning);
+        player.setLeaves(leaves);
+        player.setCache(cache);
         sc.nextLine();
         String hand = sc.nextLine();
         for (int i = 0; i < hand.length(); i++) {
@@ -66,6 +82,15 @@ public class BoardSolver {
         }
         System.out.println("Input Board:");
         System.out.print(board);
+        if(top > 0) {
+            MoveList moves = player.generateMoves(top);
+            System.out.println("Top " + moves.size() + " moves:");
+            for(int i = 0; i < moves.size(); i++) {
+                String equity = leaves == null ? "" : String.format(" (equity %.2f)", moves.getEquity(i));
+                System.out.println("  " + moves.getWord(i) + " " + moves.getScore(i) + equity + " at ("
+                        + moves.getRow(i) + "," + moves.getCol(i) + ") " + moves.getDirection(i));
+            }
+        }
         player.makeMove();
         MoveInfo info = player.getMoveInfo();
         System.out.print("Tray: " + hand);
@@ -80,23 +105,216 @@ public class BoardSolver {
      */
     private void parse() {
         while(sc.hasNext()) {
+            if(sc.hasNext("lexicon")) {
+                sc.next();
+                useLexicon(sc.next());
+                continue;
+            }
             Board board = makeBoard();
             outputSolution(board);
         }
     }
 
     /**
-     * @param root - root of the trie representing lexicon
+     * Switch the boards that follow over to another lexicon, "default" for
+     * the one given on the command line
+     * @param name - name the lexicon was registered under
+     */
+    private void useLexicon(String name) {
+        boolean useGaddag = defaultGaddag != null;
+        if(lexiconName != null) {
+            registry.release(lexiconName, PackedLexicon.TRIE);
+            if(useGaddag) registry.release(lexiconName, PackedLexicon.GADDAG);
+        }
+        if(name.equals("default")) {
+            lexiconName = null;
+            lexicon = defaultLexicon;
+            gaddag = defaultGaddag;
+            return;
+        }
+        lexiconName = name;
+        lexicon = registry.acquire(name, PackedLexicon.TRIE);
+        gaddag = useGaddag ? registry.acquire(name, PackedLexicon.GADDAG) : null;
+    }
+
+    /**
+     * @param lexicon - lexicon words are checked against
+     */
+    private void setLexicon(Lexicon lexicon) {
+        this.lexicon = lexicon;
+        defaultLexicon = lexicon;
+    }
+
+    /**
+     * @param gaddag - GADDAG to generate moves with, null to use the
+     *               trie search
+     */
+    private void setGaddag(Lexicon gaddag) {
+        this.gaddag = gaddag;
+        defaultGaddag = gaddag;
+    }
+
+    /**
+     * @param parallel - whether moves are generated on all cores
+     */
+    private void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param pruning - whether the move search skips branches that can't
+     *                beat the best move found so far
+     */
+    private void setPruning(boolean pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * @param leaves - leave values to pick the solution by equity with,
+     *               null to pick the highest scoring move
+     */
+    private void setLeaves(LeaveTable leaves) {
+        this.leaves = leaves;
+    }
+
+    /**
+     * @param top - how many of the best moves to list for each board
+     */
+    private void setTop(int top) {
+        this.top = top;
+    }
+
+    /**
+     * @param cache - where to remember the moves of the boards solved, so
+     *              a board and tray seen before is not searched again
+     */
+    private void setCache(MoveCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param registry - where the lexicons named in the input come from
      */
-    private void setRoot(TrieNode root) {
-        this.root = root;
+    private void setRegistry(LexiconRegistry registry) {
+        this.registry = registry;
     }
 
-    public static void main(String[] args) throws FileNotFoundException {
-        TrieFileParser parser = new TrieFileParser(args[0]);
-        TrieNode root = parser.makeTree();
+    /**
+     * Usage: BoardSolver dictionary [options]
+     * The dictionary is either a text word list or a lexicon image made by
+     * LexiconCompiler, which is memory mapped instead of parsed.
+     * Options:
+     *   -dawg - merge shared suffixes of the lexicon into a word graph
+     *   -gaddag - generate moves with a GADDAG instead of the trie search
+     *   -parallel - build the lexicon on all cores, one task per first letter,
+     *               and search the anchors of each board on all cores
+     *   -time - print how long building the lexicon took to standard error
+     *   -offheap - keep a lexicon built from a text dictionary outside of
+     *              the Java heap
+     *   -patch file - add and remove words listed in file ("+word" or
+     *                 "-word" per line) after loading the lexicon. The
+     *                 patched lexicon is kept on the heap, -offheap has
+     *                 no effect on it.
+     *   -lexicon name=file - register another dictionary (text or image)
+     *                        under a name. A line "lexicon name" in the
+     *                        input switches the boards after it to that
+     *                        dictionary, "lexicon default" switches back.
+     *                        TWL06 and SOWPODS are always registered.
+     *   -top k - also list the k best moves of each board
+     *   -prune - skip the parts of the move search that can't beat the best
+     *            move found so far, the solution stays the same
+     *   -leaves file - pick the move with the most score plus leave value
+     *                  instead of the most points, with the leave values
+     *                  in file (see LeaveTable and LeaveTableBuilder)
+     *   -cache n - remember up to n moves of the boards solved, so a board
+     *              and tray that come up again are answered without a
+     *              search. Prints the hits and misses to standard error.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean dawg = false;
+        boolean gaddag = false;
+        boolean parallel = false;
+        boolean pruning = false;
+        boolean time = false;
+        boolean offHeap = false;
+        String patch = null;
+        int top = 0;
+        LeaveTable leaves = null;
+        MoveCache cache = null;
+        LexiconRegistry registry = LexiconRegistry.getDefault();
+        for(int i = 1; i < args.length; i++) {
+            if(args[i].equals("-dawg")) dawg = true;
+            else if(args[i].equals("-gaddag")) gaddag = true;
+            else if(args[i].equals("-parallel")) parallel = true;
+            else if(args[i].equals("-time")) time = true;
+            else if(args[i].equals("-offheap")) offHeap = true;
+            else if(args[i].equals("-patch") && i + 1 < args.length) patch = args[++i];
+            else if(args[i].equals("-prune")) pruning = true;
+            else if(args[i].equals("-leaves") && i + 1 < args.length) leaves = LeaveTable.load(args[++i]);
+            else if(args[i].equals("-top") && i + 1 < args.length) top = Integer.parseInt(args[++i]);
+            else if(args[i].equals("-cache") && i + 1 < args.length) cache = new MoveCache(Integer.parseInt(args[++i]));
+            else if(args[i].equals("-lexicon") && i + 1 < args.length) {
+                String[] named = args[++i].split("=", 2);
+                if(named.length == 2) registry.register(named[0], named[1]);
+            }
+        }
+        if(offHeap && patch != null) {
+            System.err.println("-offheap has no effect on the patched lexicon, it is kept on the heap");
+        }
+        registry.setOffHeap(offHeap);
+        PackedLexicon trie;
+        PackedLexicon packedGaddag = null;
+        if(PackedLexicon.isImage(args[0])) {
+            trie = PackedLexicon.load(args[0], PackedLexicon.TRIE);
+            if(gaddag) {
+                packedGaddag = PackedLexicon.load(args[0], PackedLexicon.GADDAG);
+                if(packedGaddag == null) {
+                    System.err.println(args[0] + " has no GADDAG, compile it with -gaddag");
+                    System.exit(1);
+                }
+            }
+        }
+        else {
+            TrieFileParser parser = new TrieFileParser(args[0]);
+            parser.setParallel(parallel);
+            TrieNode root = dawg ? parser.makeDawg() : parser.makeTree();
+            if(time) System.err.println("Lexicon built in " + parser.getBuildTime() + " ms");
+            trie = PackedLexicon.pack(root);
+            if(gaddag) packedGaddag = PackedLexicon.pack(new TrieFileParser(args[0]).makeGaddag());
+            if(offHeap && patch == null) {
+                trie = trie.offHeap();
+                if(gaddag) packedGaddag = packedGaddag.offHeap();
+            }
+        }
+
         BoardSolver solver = new BoardSolver();
-        solver.setRoot(root);
+        solver.setRegistry(registry);
+        solver.setParallel(parallel);
+        solver.setTop(top);
+        solver.setPruning(pruning);
+        solver.setLeaves(leaves);
+        solver.setCache(cache);
+        if(patch == null) {
+            solver.setLexicon(trie);
+            solver.setGaddag(packedGaddag);
+        }
+        else {
+            LiveLexicon liveTrie = new LiveLexicon(trie, false);
+            LiveLexicon liveGaddag = gaddag ? new LiveLexicon(packedGaddag, true) : null;
+            try(FileInputStream stream = new FileInputStream(patch)) {
+                liveTrie.applyPatch(stream);
+            }
+            if(gaddag) {
+                try(FileInputStream stream = new FileInputStream(patch)) {
+                    liveGaddag.applyPatch(stream);
+                }
+            }
+            solver.setLexicon(liveTrie);
+            solver.setGaddag(liveGaddag);
+        }
         solver.parse();
+        if(cache != null) {
+            System.err.println("Move cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+        }
     }
 }
@@ -12,6 +12,10 @@ package scrabble;
  * is being counted. After a move is finished, "lock" all of the tiles that
  * you have placed in order to transform them from "new" to "filled".
  * The character \0 (null character) represents an empty tile
+ * The data of a tile is not kept in the tile itself but in the primitive
+ * arrays of the board it is on, a tile is just a view of one square of the
+ * board for code like the GUI that works with tiles. A tile made on its own,
+ * like the ones in the player's hand, keeps its data in fields of its own.
  */
 
 public class BoardTile {
@@ -19,24 +23,43 @@ public class BoardTile {
         FILLED, EMPTY, NEW
     }
 
-    private int charMultiplier;
-    private int wordMultiplier;
-    private Character data;
-    private int score;
-    private int row;
-    private int column;
     //points for certain characters in the scrabble game
     private static int[] scores = {1,3,3,2,1,4,2,4,1,8,5,1,3,1,1,3,10,1,1,1,1,4,4,8,4,10};
+    private final Board board; //null if the tile is not on a board
+    private final int square; //index of the tile in the arrays of the board
+    private final int row;
+    private final int column;
+    //data of a tile that is not on a board
+    private char data;
     private State state;
+    private int charMultiplier;
+    private int wordMultiplier;
 
+    /**
+     * Makes a tile that is not on the board
+     * @param row - row to report
+     * @param column - column to report
+     */
     public BoardTile(int row, int column) {
+        board = null;
+        square = -1;
+        this.row = row;
+        this.column = column;
+        state = State.EMPTY;
         charMultiplier = 1;
         wordMultiplier = 1;
-        score = 0;
-        data = '\0';
+    }
+
+    /**
+     * @param row - row on the board
+     * @param column - column on the board
+     * @param board - board the tile is on
+     */
+    BoardTile(int row, int column, Board board) {
+        this.board = board;
+        square = board.square(row, column);
         this.row = row;
         this.column = column;
-        state = State.EMPTY;
     }
 
     /**
@@ -44,7 +67,8 @@ public class BoardTile {
      * @param multiplier - what the multiplier is
      */
     public void setCharMultiplier(int multiplier) {
-        charMultiplier = multiplier;
+        if(board == null) charMultiplier = multiplier;
+        else board.setCharMultiplier(square, multiplier);
     }
 
     /**
@@ -52,14 +76,16 @@ public class BoardTile {
      * @param multiplier - what the multiplier is
      */
     public void setWordMultiplier(int multiplier) {
-        wordMultiplier = multiplier;
+        if(board == null) wordMultiplier = multiplier;
+        else board.setWordMultiplier(square, multiplier);
     }
 
     /**
      * @return - true if tile is empty, false otherwise
      */
     public boolean isEmpty() {
-        return state == State.EMPTY;
+        if(board == null) return state == State.EMPTY;
+        return board.isEmpty(square);
     }
 
     /**
@@ -70,19 +96,31 @@ public class BoardTile {
      * @param data - what character to put onto the tile
      */
     public void setData(Character data) {
-        if(state == State.FILLED) return;
-        if(Character.isUpperCase(data) || data == '*') score = 0;
-        else score = scores[data-97];
-        state = State.NEW;
-        this.data = data;
+        if(board != null) board.setLetter(square, data);
+        else if(state != State.FILLED) {
+            this.data = data;
+            state = State.NEW;
+        }
+    }
+
+    /**
+     * @param data - character that would go on a tile
+     * @return - points the character is worth before multipliers, 0 for a
+     * blank (a capital letter or '*')
+     */
+    public static int getLetterScore(char data) {
+        if(Character.isUpperCase(data) || data == '*') return 0;
+        return scores[data-97];
     }
 
     /**
      * Make this tile be uneditable, i.e. a move has been made and this
-     * word is now on the board. Only works for "new" tiles.
+     * word is now on the board. Only works for "new" tiles. The board
+     * uses this to update its anchors.
      */
     public void lockTile() {
-        if(state != State.EMPTY) state = State.FILLED;
+        if(board != null) board.lockSquare(square);
+        else if(state == State.NEW) state = State.FILLED;
     }
 
     /**
@@ -90,10 +128,11 @@ public class BoardTile {
      * locked onto the board yet
      */
     public void clearTile() {
-        if(state == State.FILLED) return;
-        data = '\0';
-        state = State.EMPTY;
-        score = 0;
+        if(board != null) board.clearSquare(square);
+        else if(state == State.NEW) {
+            data = '\0';
+            state = State.EMPTY;
+        }
     }
 
     /**
@@ -102,22 +141,26 @@ public class BoardTile {
      * implicitly 1.
      */
     public int getScore() {
-        if(state == State.NEW) return score * charMultiplier;
-        return score;
+        if(board != null) return board.getScore(square);
+        if(state == State.EMPTY) return 0;
+        int score = getLetterScore(data);
+        return state == State.NEW ? score * charMultiplier : score;
     }
 
     /**
      * @return - the character on the tile
      */
     public Character getData() {
-        return data;
+        if(board == null) return data;
+        return board.getLetter(square);
     }
 
     /**
      * @return - whether a tile is empty, new, or filled
      */
     public State getState() {
-        return state;
+        if(board == null) return state;
+        return board.getState(square);
     }
 
     /**
@@ -125,8 +168,8 @@ public class BoardTile {
      * the tile is not new
      */
     public int getWordMultiplier() {
-        if(state == State.FILLED) return 1;
-        return wordMultiplier;
+        if(board == null) return state == State.FILLED ? 1 : wordMultiplier;
+        return board.getWordMultiplier(square);
     }
 
     /**
@@ -134,8 +177,8 @@ public class BoardTile {
      * is not new
      */
     public int getCharMultiplier() {
-        if(state == State.FILLED) return 1;
-        return charMultiplier;
+        if(board == null) return state == State.FILLED ? 1 : charMultiplier;
+        return board.getCharMultiplier(square);
     }
 
     /**
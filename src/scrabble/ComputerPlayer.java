@@ -4,36 +4,85 @@ package scrabble;
  * Class representing the AI computer in the scrabble game. Each move, it
  * computes and makes the highest scoring move that is possible onto the board.
  * The algorithm it uses is the same as described in the "world's fastest
- * scrabble program" paper.
+ * scrabble program" paper. Alternatively, when given a GADDAG, it grows
+ * words outward from each anchor in both directions as described in the
+ * "faster scrabble move generation algorithm" paper.
  */
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class ComputerPlayer {
     private Board board;
-    private HashMap<BoardTile, Anchor> anchors;
-    private TrieNode root;
-    private ArrayList<Character> hand;
+    private AnchorSet anchors;
+    private Lexicon sourceLexicon;
+    private Lexicon sourceGaddag;
+    private Lexicon lexicon; //snapshots of the two above taken for the current move
+    private Lexicon gaddag;
+    private Rack hand;
     private MoveInfo moveInfo;
+    private boolean parallel;
+    private boolean pruning;
+    private LeaveTable leaves;
+    private MoveCache cache;
 
-    private String bestWord;
-    private int bestScore;
-    private Board.Direction bestDirection;
-    private int bestRow;
-    private int bestCol;
-    private int currRow;
-    private int currCol;
-
-    ComputerPlayer(Board board, TrieNode root) {
+    ComputerPlayer(Board board, Lexicon lexicon) {
         this.board = board;
-        this.root = root;
-        anchors = new HashMap<>();
-        hand = new ArrayList<>();
-        bestScore = 0;
+        this.sourceLexicon = lexicon;
+        hand = new Rack();
         moveInfo = new MoveInfo();
     }
 
+    /**
+     * Choose which move generator to use. With a GADDAG the player grows
+     * words from the anchors in both directions, without one it uses the
+     * left part / extend right search over the trie. The trie is still
+     * used for cross checks either way.
+     * @param gaddag - GADDAG made from the same dictionary as the trie, or
+     *               null to go back to the trie search
+     */
+    public void setGaddag(Lexicon gaddag) {
+        this.sourceGaddag = gaddag;
+    }
+
+    /**
+     * @param parallel - whether makeMove should search the anchors on all
+     *                 cores, one fork/join task per anchor and direction.
+     *                 The move found is the same either way.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param pruning - whether makeMove should skip the parts of the search
+     *                that can't beat the best move found so far, using an
+     *                upper bound on the score they could still reach. The
+     *                move found is the same either way.
+     */
+    public void setPruning(boolean pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * @param leaves - what the tiles kept in the hand after a move are
+     *               worth. With a table makeMove plays the move with the
+     *               most score plus leave value (equity) instead of the
+     *               highest scoring one. Null to go by score alone.
+     */
+    public void setLeaves(LeaveTable leaves) {
+        this.leaves = leaves;
+    }
+
+    /**
+     * @param cache - where to look up positions seen before instead of
+     *              searching them again, and to remember the moves found.
+     *              Can be shared with other players. Null for no cache.
+     */
+    public void setCache(MoveCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * @return - MoveInfo object representing information about AI move
      */
@@ -57,328 +106,127 @@ public class ComputerPlayer {
     }
 
     /**
-     * Computes all possible "left parts" before a given anchor. For each of these
-     * left parts that we generate, attempt to extendRight to find complete
-     * words.
-     * @param partial - partial word that has been generated so far
-     * @param node - node in he trie where we currently are
-     * @param lim - how much space we have to form the left part
-     * @param anchor - anchor square that we are forming the left part of
-     */
-    private void leftPart(String partial, TrieNode node, int lim, BoardTile anchor) {
-        extendRight(partial, node, anchor);
-        if(lim > 0) {
-            for(Character c : node.getChildrenData()) {
-                if(hand.contains(c)) {
-                    hand.remove(c);
-                    currCol--;
-                    TrieNode newNode = node.getChild(c);
-                    leftPart(partial + c, newNode, lim - 1, anchor);
-                    currCol++;
-                    hand.add(c);
-                }
-                if(hand.contains('*')) {
-                    hand.remove((Character)'*');
-                    currCol--;
-                    TrieNode newNode = node.getChild(c);
-                    leftPart(partial + Character.toUpperCase(c), newNode,lim - 1, anchor);
-                    currCol++;
-                    hand.add('*');
-                }
-            }
-        }
-    }
-
-    /**
-     * Find all valid permutations of a given left part in the across direction,
-     * calls checkWord for every valid permutation found. This is the same
-     * backtracking algorithm that was described in the "worlds fastest scrabble
-     * program" paper.
-     * @param partial - word that has been built so far
-     * @param node - node in the trie where we currently are
-     * @param square - square on the board where we currently are
+     * Play the best scoring move onto the board.
+     * Every anchor is searched in both directions, either one after another
+     * or as parallel fork/join tasks that each have their own copy of the
+     * hand. Ties are broken by a fixed ordering of the moves, so both ways
+     * find the very same move. With a cache, a position seen before is
+     * played from the cache without searching.
      */
-    private void extendRight(String partial, TrieNode node, BoardTile square) {
-        if(square == null) {
-            if(node.isTerminalNode()) checkWord(partial, Board.Direction.ACROSS);
-            return;
-        }
-        if(square.isEmpty()) {
-            if(node.isTerminalNode()) checkWord(partial, Board.Direction.ACROSS);
-            for(Character c : node.getChildrenData()) {
-                boolean condition = !anchors.containsKey(square)
-                                    || anchors.get(square).hasVCheck(c);
-                if(hand.contains(c) && condition) {
-                    hand.remove(c);
-                    TrieNode newNode = node.getChild(c);
-                    int col = square.getColumn() + 1;
-                    BoardTile nextSquare = board.getTile(currRow, col);
-                    String newString = partial + c;
-                    extendRight(newString, newNode, nextSquare);
-                    hand.add(c);
-                }
-                if(hand.contains('*') && condition) {
-                    hand.remove((Character)'*');
-                    TrieNode newNode = node.getChild(c);
-                    int col = square.getColumn() + 1;
-                    BoardTile nextSquare = board.getTile(currRow, col);
-                    String newString = partial + Character.toUpperCase(c);
-                    extendRight(newString, newNode, nextSquare);
-                    hand.add('*');
-                }
-            }
+    public void makeMove() {
+        moveInfo.clear();
+        long boardHash = board.getHash();
+        long handHash = hand.getHash();
+        Lexicon version = sourceLexicon.snapshot();
+        MoveInfo cached = cache == null ? null : cache.getBest(boardHash, handHash, version, leaves);
+        if(cached != null) {
+            moveInfo.setCol(cached.getCol());
+            moveInfo.setRow(cached.getRow());
+            moveInfo.setWord(cached.getWord());
+            moveInfo.setDirection(cached.getDirection());
+            moveInfo.setScore(cached.getScore());
+            moveInfo.setMoveSuccess(cached.getMoveSuccess());
         }
         else {
-            Character c = square.getData();
-            if(node.contains(c)) {
-                BoardTile nextSquare = board.getTile(currRow, square.getColumn()+1);
-                TrieNode newNode = node.getChild(c);
-                String newString = partial + c;
-                extendRight(newString, newNode, nextSquare);
+            int[] sorted = prepare();
+            MoveSearch best;
+            if(parallel) best = ForkJoinPool.commonPool().invoke(new SearchTask(sorted, 0, 2 * sorted.length));
+            else {
+                best = newSearch();
+                for(int anchor : sorted) {
+                    best.search(anchor, Board.Direction.ACROSS);
+                    best.search(anchor, Board.Direction.DOWN);
+                }
             }
+
+            moveInfo.setCol(best.getBestCol());
+            moveInfo.setRow(best.getBestRow());
+            moveInfo.setWord(best.getBestWord());
+            moveInfo.setDirection(best.getBestDirection());
+            moveInfo.setScore(best.getBestScore());
+            if(!best.getBestWord().isEmpty()) moveInfo.setMoveSuccess(true);
+            if(cache != null) cache.putBest(boardHash, handHash, lexicon, leaves, moveInfo);
         }
+        placeMove();
     }
 
     /**
-     * Computes all possible "top parts" before a given anchor. For each
-     * of these top parts that we generate, attempt to extendDown to find
-     * complete words.
-     * @param partial - partial word that has been generated so far
-     * @param node - node in the trie where we currently are
-     * @param lim - how much space we have to form the top part
-     * @param anchor - anchor square that we are forming the top part of
+     * Find the best moves for the current hand without playing any of them
+     * and without changing the hand
+     * @param k - how many moves to keep
+     * @return - the k best moves, or all of them if there are fewer,
+     * ordered the same way makeMove picks its move. Must not be added to
+     * when it came from the cache.
      */
-    private void topPart(String partial, TrieNode node, int lim, BoardTile anchor) {
-        extendDown(partial, node, anchor);
-        if(lim > 0) {
-            for(Character c : node.getChildrenData()) {
-                if(hand.contains(c)) {
-                    hand.remove(c);
-                    currRow--;
-                    TrieNode newNode = node.getChild(c);
-                    topPart(partial + c, newNode, lim-1, anchor);
-                    currRow++;
-                    hand.add(c);
-                }
-                if(hand.contains('*')) {
-                    hand.remove((Character)'*');
-                    currRow--;
-                    TrieNode newNode = node.getChild(c);
-                    topPart(partial + Character.toUpperCase(c), newNode, lim-1, anchor);
-                    currRow++;
-                    hand.add('*');
-                }
-            }
-        }
+    public MoveList generateMoves(int k) {
+        long boardHash = board.getHash();
+        long handHash = hand.getHash();
+        Lexicon version = sourceLexicon.snapshot();
+        MoveList moves = cache == null ? null : cache.getTop(boardHash, handHash, version, leaves, k);
+        if(moves != null) return moves;
+        moves = new MoveList(k, board.getSize());
+        generateMoves(moves);
+        if(cache != null) cache.putTop(boardHash, handHash, lexicon, leaves, k, moves);
+        return moves;
     }
 
     /**
-     * Find all valid permutations of a given top part in the downwards direction,
-     * calls checkWord for every valid permutation found. This is the same
-     * backtracking algorithm that was described in the "worlds fastest scrabble
-     * program" paper, just the extendDown version instead of extendRight.
-     * @param partial - word that has been built so far
-     * @param node - node in the trie where we currently are
-     * @param square - square on the board where we currently are
+     * Hand every legal move for the current hand to a consumer, on the
+     * calling thread, without playing any of them and without changing
+     * the hand
+     * @param consumer - what to give the moves to
      */
-    private void extendDown(String partial, TrieNode node, BoardTile square) {
-        //if off the board, stop extending
-        if(square == null) {
-            if(node.isTerminalNode()) checkWord(partial, Board.Direction.DOWN);
-            return;
-        }
-        //if square is empty, start placing valid characters and doing
-        //recursive backtrack
-        if(square.isEmpty()) {
-            if(node.isTerminalNode()) checkWord(partial, Board.Direction.DOWN);
-            for(Character c : node.getChildrenData()) {
-                boolean condition = !anchors.containsKey(square)
-                                    || anchors.get(square).hasHCheck(c);
-                //If we have in our hand a valid character, backtrack
-                if(hand.contains(c) && condition) {
-                    hand.remove(c);
-                    TrieNode newNode = node.getChild(c);
-                    int row = square.getRow() +1;
-                    BoardTile nextSquare = board.getTile(row, currCol);
-                    String newString = partial + c;
-                    extendDown(newString, newNode, nextSquare);
-                    hand.add(c);
-                }
-                //If we have a blank in our hand, backtrack for each valid character
-                if(hand.contains('*') && condition) {
-                    hand.remove((Character) '*');
-                    TrieNode newNode = node.getChild(c);
-                    int row = square.getRow() + 1;
-                    BoardTile nextSquare = board.getTile(row,currCol);
-                    String newString = partial + Character.toUpperCase(c);
-                    extendDown(newString, newNode, nextSquare);
-                    hand.add('*');
-                }
-            }
-        }
-        //If the current square already has something, keep going
-        else {
-            Character c = square.getData();
-            if(node.contains(c)) {
-                BoardTile nextSquare = board.getTile(square.getRow()+1, currCol);
-                TrieNode newNode = node.getChild(c);
-                String newString = partial + c;
-                extendDown(newString, newNode, nextSquare);
-            }
+    public void generateMoves(MoveConsumer consumer) {
+        int[] sorted = prepare();
+        MoveSearch search = newSearch();
+        search.setSink(consumer);
+        for(int anchor : sorted) {
+            search.search(anchor, Board.Direction.ACROSS);
+            search.search(anchor, Board.Direction.DOWN);
         }
     }
 
     /**
-     * Play the best scoring move onto the board.
-     * Basically goes through every anchor, computing the "before" part somehow
-     * (either through seeing what came before or calling beforePart) and then
-     * extends right.
+     * Takes the lexicon snapshots for a move and gets the anchors with
+     * their cross checks from the board
+     * @return - squares of the anchors, ordered by row and then column
      */
-    public void makeMove() {
-        //Recompute anchor squares and reset score
-        anchors = Anchor.getAnchors(board);
-        for(Anchor anchor : anchors.values()) anchor.updateCrossChecks(root);
-        bestWord = "";
-        bestScore = 0;
-        bestCol = 0;
-        bestRow = 0;
-        bestDirection = null;
-        moveInfo.clear();
-
-        //For every anchor we computed, try to form a word
-        for(Anchor anchor : anchors.values()) {
-            currCol = anchor.getCol();
-            currRow = anchor.getRow();
-
-            //making across moves
-            BoardTile prev = board.getTile(currRow, currCol-1);
-            //If the node is at the edge of board, just extendRight
-            if(prev == null) {
-                extendRight("", root, anchor.getTile());
-            }
-            //if the node before is empty, see how much empty space we have
-            //to form the left part
-            else if(prev.isEmpty()) {
-                int lim = 0;
-                while (prev != null && !anchors.containsKey(prev)) {
-                    lim += 1;
-                    prev = board.getTile(currRow, currCol - lim);
-                }
-                leftPart("", root, lim-1, anchor.getTile());
-            }
-            //If there is something before the anchor, compute that "left part"
-            //and then extendRight
-            else {
-                String partial = "";
-                while(prev != null && !prev.isEmpty()) {
-                    partial = prev.getData() + partial;
-                    currCol--;
-                    prev = board.getTile(currRow,currCol-1);
-                }
-                TrieNode node = root;
-                for(int i = 0; i < partial.length(); i++) {
-                    node = node.getChild(Character.toLowerCase(partial.charAt(i)));
-                }
-                extendRight(partial, node, anchor.getTile());
-            }
-
-            currCol = anchor.getCol();
-            currRow = anchor.getRow();
-            //making down moves
-            prev = board.getTile(currRow-1, currCol);
-            //If the node is at the edge of board, just extendDown
-            if(prev == null) {
-                extendDown("", root, anchor.getTile());
-            }
-            //if the node before is empty, see how much empty space we have
-            //to form the top part
-            else if(prev.isEmpty()) {
-                int lim = 0;
-                while(prev != null && !anchors.containsKey(prev)) {
-                    lim += 1;
-                    prev = board.getTile(currRow-lim, currCol);
-                }
-                topPart("", root, lim-1, anchor.getTile());
-            }
-            //If there is something before the anchor, compute the "top part"
-            //and then extendDown
-            else {
-                String partial = "";
-                while(prev != null && !prev.isEmpty()) {
-                    partial = prev.getData() + partial;
-                    currRow--;
-                    prev = board.getTile(currRow-1, currCol);
-                }
-                TrieNode node = root;
-                for(int i = 0; i < partial.length(); i++) {
-                    node = node.getChild(Character.toLowerCase(partial.charAt(i)));
-                }
-                extendDown(partial, node, anchor.getTile());
-            }
-        }
-
-        moveInfo.setCol(bestCol);
-        moveInfo.setRow(bestRow);
-        moveInfo.setWord(bestWord);
-        moveInfo.setDirection(bestDirection);
-        moveInfo.setScore(bestScore);
-        if(bestWord != "") moveInfo.setMoveSuccess(true);
-        placeMove();
+    private int[] prepare() {
+        //Work on one version of the lexicon for the whole move
+        lexicon = sourceLexicon.snapshot();
+        gaddag = sourceGaddag == null ? null : sourceGaddag.snapshot();
+        //Bring the anchor squares up to date with the tiles placed since last time
+        anchors = board.getAnchors(lexicon);
+        return anchors.toArray();
     }
 
     /**
-     * Checks a move that the extendRight algorithm computed to make sure
-     * the move is valid, then updates the information about where the best
-     * move was made if this move is better than all the others.
-     * @param partial - string representing word that has been made
-     * @param direction - direction in which word was placed
+     * @return - search over the current board, lexicons and hand
      */
-    private void checkWord(String partial, Board.Direction direction) {
-        int row = currRow;
-        int col = currCol;
-        boolean valid = false;
-        //Place word onto the board
-        for(int i = 0; i < partial.length(); i++) {
-            board.placeTile(row, col, partial.charAt(i));
-            if(anchors.containsKey(board.getTile(row,col))) valid = true;
-            if(direction == Board.Direction.ACROSS) col++;
-            else row++;
-        }
-        //Double check that word is valid, score word
-        if(!board.validWord(currRow,currCol,direction,root)) return;
-        int score = board.scoreWord(currRow, currCol, direction);
-        row = currRow;
-        col = currCol;
-        //take word off the board
-        for(int i = 0; i < partial.length(); i++) {
-            board.getTile(row,col).clearTile();
-            if(direction == Board.Direction.ACROSS) col++;
-            else row++;
-        }
-        //Update best move stats if necessary
-        if(hand.isEmpty()) score += 50;
-        if(score > bestScore && valid) {
-            bestRow = currRow;
-            bestCol = currCol;
-            bestWord = partial;
-            bestDirection = direction;
-            bestScore = score;
-        }
+    private MoveSearch newSearch() {
+        MoveSearch search = new MoveSearch(board, anchors, lexicon, gaddag, hand);
+        search.setPruning(pruning);
+        search.setLeaves(leaves);
+        return search;
     }
 
     /**
-     * Put the best found move onto the board and lock the tiles
+     * Put the best found move onto the board and lock the tiles, only the
+     * tiles that were not already on the board come out of the hand
      */
     private void placeMove() {
-        int row = bestRow;
-        int col = bestCol;
+        String bestWord = moveInfo.getWord();
+        Board.Direction bestDirection = moveInfo.getDirection();
+        int row = moveInfo.getRow();
+        int col = moveInfo.getCol();
         for(int i = 0; i < bestWord.length(); i++) {
+            boolean placed = board.getTile(row,col).isEmpty();
             board.placeTile(row, col, bestWord.charAt(i));
             board.getTile(row,col).lockTile();
-            if(Character.isUpperCase((Character)bestWord.charAt(i))) {
-                hand.remove((Character)'*');
+            if(placed && Character.isUpperCase((Character)bestWord.charAt(i))) {
+                hand.take(Rack.BLANK);
             }
-            else hand.remove((Character)bestWord.charAt(i));
+            else if(placed) hand.take(bestWord.charAt(i));
 
             if(bestDirection == Board.Direction.ACROSS) col++;
             else row++;
@@ -386,8 +234,43 @@ public class ComputerPlayer {
     }
 
     public String getHandString() {
-        String string = "";
-        for(Character c : hand)  string += c;
-        return string;
+        return hand.toString();
+    }
+
+    /**
+     * Searches a range of the (anchor, direction) pairs of a move, splitting
+     * it in half until single pairs are left, and returns the search with
+     * the best move of the range. Pair i is anchor i/2, across for even i
+     * and down for odd i.
+     */
+    private class SearchTask extends RecursiveTask<MoveSearch> {
+        private static final long serialVersionUID = 1L;
+        private final int[] anchors;
+        private final int from;
+        private final int to;
+
+        SearchTask(int[] anchors, int from, int to) {
+            this.anchors = anchors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected MoveSearch compute() {
+            if(to - from <= 1) {
+                MoveSearch search = newSearch();
+                if(from < to) {
+                    Board.Direction direction = from % 2 == 0 ? Board.Direction.ACROSS : Board.Direction.DOWN;
+                    search.search(anchors[from / 2], direction);
+                }
+                return search;
+            }
+            int split = (from + to) >>> 1;
+            SearchTask right = new SearchTask(anchors, split, to);
+            right.fork();
+            MoveSearch left = new SearchTask(anchors, from, split).compute();
+            MoveSearch other = right.join();
+            return other.beats(left) ? other : left;
+        }
     }
 }
@@ -17,6 +17,7 @@ import javafx.scene.layout.GridPane;
 import javafx.stage.Stage;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Display extends Application {
     private TileDisplay[][] tiles;
@@ -26,7 +27,8 @@ public class Display extends Application {
     private GridPane handDisplay;
     private Label playerScoreLabel;
     private Label aiScoreLabel;
-    private TrieNode root;
+    private Lexicon lexicon;
+    private String lexiconName;
     private Board board;
     private HumanPlayer human;
     private TileDisplay selected;
@@ -36,6 +38,10 @@ public class Display extends Application {
     private TilePile pile;
     private boolean gameOver;
 
+    /**
+     * Usage: Display [lexicon], lexicon is the name of the dictionary to
+     * play with, TWL06 (the default) or SOWPODS
+     */
     public static void main(String[] args) {
         launch(args);
     }
@@ -107,7 +113,7 @@ public class Display extends Application {
      * an alert is popped up.
      */
     private void handleMove() {
-        HumanPlayer.MoveStatus status = human.validateMove(root);
+        HumanPlayer.MoveStatus status = human.validateMove(lexicon);
         Alert alert = new Alert(Alert.AlertType.WARNING);
         alert.setTitle("Incorrect Move");
         switch(status) {
@@ -222,19 +228,27 @@ public class Display extends Application {
         repaint();
     }
 
+    @Override
+    public void stop() {
+        LexiconRegistry.getDefault().release(lexiconName, PackedLexicon.TRIE);
+    }
+
     /**
      * Initialize all the objects that are needed to run the program
      */
     private void initObjects() {
+        LexiconRegistry registry = LexiconRegistry.getDefault();
+        List<String> args = getParameters().getUnnamed();
+        lexiconName = args.isEmpty() ? "TWL06" : args.get(0).toUpperCase();
+        registry.preload(lexiconName, PackedLexicon.TRIE);
         BoardSolver scrabbleGetter = new BoardSolver("scrabble_board.txt");
-        TrieFileParser parser = new TrieFileParser(ClassLoader.getSystemResourceAsStream("twl06.txt"));
-        root = parser.makeTree();
         board = scrabbleGetter.makeBoard();
         pile = new TilePile();
         pile.scrabblePile();
         tiles = new TileDisplay[board.getSize()][board.getSize()];
         boardDisplay = new GridPane();
-        ai = new ComputerPlayer(board, root);
+        lexicon = registry.acquire(lexiconName, PackedLexicon.TRIE);
+        ai = new ComputerPlayer(board, lexicon);
         human = new HumanPlayer(board);
         hand = new ArrayList<>();
         mainDisplay = new GridPane();
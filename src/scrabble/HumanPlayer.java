@@ -19,14 +19,14 @@ public class HumanPlayer {
         MOVE_SUCCESS
     }
 
-    private ArrayList<Character> hand;
+    private Rack hand;
     private HashSet<BoardTile> placed;
     private HashMap<BoardTile, Anchor> anchors;
     private Board board;
     private MoveInfo moveInfo;
 
     public HumanPlayer(Board board) {
-        hand = new ArrayList<>();
+        hand = new Rack();
         placed = new HashSet<>();
         this.board = board;
         moveInfo = new MoveInfo();
@@ -57,7 +57,7 @@ public class HumanPlayer {
     /**
      * @return - returns the hand of the player
      */
-    public List<Character> getHand() {
+    public Rack getHand() {
         return hand;
     }
 
@@ -81,7 +81,8 @@ public class HumanPlayer {
         }
         if(!tile.isEmpty()) return;
         tile.setData(move);
-        hand.remove(move);
+        if(Character.isUpperCase(move)) hand.take(Rack.BLANK);
+        else hand.take(move);
         placed.add(tile);
     }
 
@@ -92,7 +93,7 @@ public class HumanPlayer {
     public void resetMove() {
         for(BoardTile tile : placed) {
             Character toAdd = tile.getData();
-            if(Character.isUpperCase(toAdd)) hand.add('*');
+            if(Character.isUpperCase(toAdd)) hand.add(Rack.BLANK);
             else hand.add(toAdd);
             tile.clearTile();
         }
@@ -103,10 +104,12 @@ public class HumanPlayer {
     /**
      * Looks at what has been placed this turn and determines if the move made
      * is valid
+     * @param lexicon - the lexicon words are checked against
      * @return - enum showing the various kinds of misplays that may have
      * occurred
      */
-    public MoveStatus validateMove(TrieNode root) {
+    public MoveStatus validateMove(Lexicon lexicon) {
+        lexicon = lexicon.snapshot();
         Board.Direction direction;
         if(placed.isEmpty()) return MoveStatus.NOT_WORD;
         //Get left and topmost placed tile
@@ -128,11 +131,11 @@ public class HumanPlayer {
         else return MoveStatus.DIR_MISMATCH;
 
         if(!both) {
-            if (!board.validWord(row, col, direction, root)) return MoveStatus.NOT_WORD;
+            if (!board.validWord(row, col, direction, lexicon)) return MoveStatus.NOT_WORD;
         }
         else {
-            if(board.validWord(row,col, Board.Direction.ACROSS, root)) direction = Board.Direction.ACROSS;
-            else if(board.validWord(row,col, Board.Direction.DOWN, root)) direction = Board.Direction.DOWN;
+            if(board.validWord(row,col, Board.Direction.ACROSS, lexicon)) direction = Board.Direction.ACROSS;
+            else if(board.validWord(row,col, Board.Direction.DOWN, lexicon)) direction = Board.Direction.DOWN;
             else return MoveStatus.NOT_WORD;
         }
 
@@ -0,0 +1,190 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * How many points the tiles left in the hand after a move (the leave) are
+ * worth, for picking moves by equity (score plus leave value) instead of
+ * score alone. Leaves are packed into a long, the letters in sorted order
+ * with blanks last, 5 bits each, under a leading 1 bit, so "ers*" and "sre*"
+ * are the same key. The values are kept in an open addressing table of
+ * primitive arrays, so a lookup is a hash and a probe or two with no
+ * objects made.
+ * The table is read from a text file with one leave and its value per line
+ * ("aer* 12.5", "-" for the empty leave), which LeaveTableBuilder makes
+ * from self-play games.
+ */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+public class LeaveTable {
+    private static final long EMPTY = 0; //no key packs to 0 since keys start with a 1 bit
+
+    private long[] keys;
+    private float[] values;
+    private int size;
+    private float maxValue;
+
+    public LeaveTable() {
+        keys = new long[1024];
+        values = new float[1024];
+    }
+
+    /**
+     * Packs a leave into its key
+     * @param leave - letters of the leave in any order, '*' for blanks
+     * @return - the key
+     */
+    public static long key(CharSequence leave) {
+        int[] counts = new int[27];
+        for(int i = 0; i < leave.length(); i++) {
+            char c = leave.charAt(i);
+            if(c == Rack.BLANK) counts[26]++;
+            else if(c >= 'a' && c <= 'z') counts[c - 'a']++;
+        }
+        return key(counts);
+    }
+
+    /**
+     * @param counts - how many of each letter there are, blanks at 26
+     * @return - key of the leave
+     */
+    static long key(int[] counts) {
+        long key = 1;
+        for(int i = 0; i < counts.length; i++) {
+            for(int j = 0; j < counts[i]; j++) key = (key << 5) | (i + 1);
+        }
+        return key;
+    }
+
+    /**
+     * @param key - key of a leave
+     * @return - letters of the leave, sorted, '*' for blanks
+     */
+    public static String leave(long key) {
+        StringBuilder leave = new StringBuilder();
+        while(key > 1) {
+            int index = (int)(key & 31) - 1;
+            leave.append(index == 26 ? Rack.BLANK : (char)('a' + index));
+            key >>>= 5;
+        }
+        return leave.reverse().toString();
+    }
+
+    /**
+     * @param key - key of a leave
+     * @param value - what the leave is worth
+     */
+    public void put(long key, float value) {
+        if(2 * (size + 1) > keys.length) resize(2 * keys.length);
+        int slot = find(keys, key);
+        if(keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+        maxValue = size == 1 ? value : Math.max(maxValue, value);
+    }
+
+    /**
+     * @param key - key of a leave
+     * @return - what the leave is worth, 0 if it isn't in the table
+     */
+    public float get(long key) {
+        int slot = find(keys, key);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    /**
+     * @param rack - tiles left in the hand
+     * @return - what the leave is worth, 0 if it isn't in the table
+     */
+    public float get(Rack rack) {
+        return get(rack.getLeaveKey());
+    }
+
+    /**
+     * @return - the most any leave in the table is worth, 0 if none is
+     * worth more than that
+     */
+    public float getMaxValue() {
+        return Math.max(0, maxValue);
+    }
+
+    /**
+     * @return - how many leaves are in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads a table written by write
+     * @param fileName - file to read
+     * @return - the table
+     * @throws IOException - if the file can't be read or a line is malformed
+     */
+    public static LeaveTable load(String fileName) throws IOException {
+        LeaveTable table = new LeaveTable();
+        try(BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\s+");
+                if(parts.length != 2) throw new IOException("Bad leave line: " + line);
+                String leave = parts[0].equals("-") ? "" : parts[0];
+                try {
+                    table.put(key(leave), Float.parseFloat(parts[1]));
+                }
+                catch(NumberFormatException e) {
+                    throw new IOException("Bad leave value: " + line);
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Writes the table, one leave and its value per line
+     * @param fileName - file to write
+     * @throws IOException - if the file can't be written
+     */
+    public void write(String fileName) throws IOException {
+        try(PrintWriter writer = new PrintWriter(fileName)) {
+            for(int i = 0; i < keys.length; i++) {
+                if(keys[i] == EMPTY) continue;
+                String leave = leave(keys[i]);
+                writer.println((leave.isEmpty() ? "-" : leave) + " " + values[i]);
+            }
+        }
+    }
+
+    /**
+     * @param keys - table to look in
+     * @param key - key to look for
+     * @return - slot holding the key, or the empty slot where it would go
+     */
+    private static int find(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int)(h ^ (h >>> 32)) & mask;
+        while(keys[slot] != EMPTY && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        float[] oldValues = values;
+        keys = new long[capacity];
+        values = new float[capacity];
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == EMPTY) continue;
+            int slot = find(keys, oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
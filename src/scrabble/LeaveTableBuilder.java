@@ -0,0 +1,172 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Command line tool that makes a leave table for LeaveTable out of
+ * self-play games between two computer players that go by score alone.
+ * Every time a player keeps some tiles, the points of that player's next
+ * move are recorded against what was kept. A tile is worth how much more
+ * than average the next move scores when it was kept, and a leave is worth
+ * what its tiles are worth plus how much better or worse the leave did
+ * than that, trusted more the more often it was seen. Every leave of up to
+ * six tiles that the tile distribution allows is written out, so leaves
+ * that never came up are still valued by their tiles.
+ * Usage: LeaveTableBuilder dictionary games output [-gaddag]
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+
+public class LeaveTableBuilder {
+    private static final int[] FREQ = {
+            9,2,2,4,12,2,3,2,9,1,1,4,2,6,8,2,1,6,4,6,4,2,2,1,2,1,2 //blanks last
+    };
+    private static final int MAX_LEAVE = 6;
+    private static final int TRUST = 20; //samples at which a leave's own average counts half
+
+    private final HashMap<Long, double[]> samples = new HashMap<>(); //leave key to {sum, count}
+    private double total;
+    private long count;
+
+    /**
+     * @param leave - key of the tiles that were kept
+     * @param score - points of the next move made with them
+     */
+    private void record(long leave, int score) {
+        double[] sample = samples.computeIfAbsent(leave, k -> new double[2]);
+        sample[0] += score;
+        sample[1]++;
+        total += score;
+        count++;
+    }
+
+    /**
+     * Plays one game, recording the leaves of both players
+     * @param trie - lexicon to play with
+     * @param gaddag - GADDAG to generate moves with, or null
+     */
+    private void playGame(Lexicon trie, Lexicon gaddag) {
+        Board board = new BoardSolver("scrabble_board.txt").makeBoard();
+        TilePile pile = new TilePile();
+        pile.scrabblePile();
+        ComputerPlayer[] players = new ComputerPlayer[2];
+        long[] kept = {-1, -1}; //leave waiting for the player's next move, -1 for none
+        for(int i = 0; i < players.length; i++) {
+            players[i] = new ComputerPlayer(board, trie);
+            players[i].setGaddag(gaddag);
+            draw(players[i], pile);
+        }
+        int passes = 0;
+        for(int turn = 0; passes < players.length; turn = (turn + 1) % players.length) {
+            ComputerPlayer player = players[turn];
+            if(player.getHandSize() == 0) break;
+            player.makeMove();
+            MoveInfo move = player.getMoveInfo();
+            if(!move.getMoveSuccess()) {
+                passes++;
+                kept[turn] = -1;
+                continue;
+            }
+            passes = 0;
+            if(kept[turn] >= 0) record(kept[turn], move.getScore());
+            //a leave only means something while there are tiles to draw after it
+            kept[turn] = pile.isEmpty() ? -1 : LeaveTable.key(player.getHandString());
+            draw(player, pile);
+        }
+    }
+
+    /**
+     * Fills a player's hand back up to seven tiles
+     */
+    private static void draw(ComputerPlayer player, TilePile pile) {
+        while(player.getHandSize() < 7 && !pile.isEmpty()) player.addToHand(pile.draw());
+    }
+
+    /**
+     * @return - the table made from the recorded games
+     */
+    private LeaveTable build() {
+        double mean = count == 0 ? 0 : total / count;
+        //what each tile adds, from every leave it was kept in
+        double[] tileSum = new double[FREQ.length];
+        long[] tileCount = new long[FREQ.length];
+        for(HashMap.Entry<Long, double[]> entry : samples.entrySet()) {
+            int[] counts = counts(entry.getKey());
+            for(int i = 0; i < counts.length; i++) {
+                if(counts[i] == 0) continue;
+                tileSum[i] += entry.getValue()[0] - mean * entry.getValue()[1];
+                tileCount[i] += (long)entry.getValue()[1];
+            }
+        }
+        double[] tileValue = new double[FREQ.length];
+        for(int i = 0; i < tileValue.length; i++) {
+            if(tileCount[i] > 0) tileValue[i] = tileSum[i] / tileCount[i];
+        }
+        LeaveTable table = new LeaveTable();
+        addLeaves(table, new int[FREQ.length], 0, 0, 0, tileValue, mean);
+        return table;
+    }
+
+    /**
+     * Adds every leave that can be made from the tile distribution, one
+     * tile type at a time
+     * @param counts - tiles of the leave so far
+     * @param index - tile type to decide the count of next
+     * @param size - tiles in the leave so far
+     * @param value - what the tiles so far are worth added up
+     */
+    private void addLeaves(LeaveTable table, int[] counts, int index, int size, double value,
+                           double[] tileValue, double mean) {
+        if(index == counts.length) {
+            long key = LeaveTable.key(counts);
+            double[] sample = samples.get(key);
+            if(sample != null) {
+                double extra = sample[0] / sample[1] - mean - value;
+                value += extra * sample[1] / (sample[1] + TRUST);
+            }
+            table.put(key, (float)value);
+            return;
+        }
+        for(int n = 0; n <= FREQ[index] && size + n <= MAX_LEAVE; n++) {
+            counts[index] = n;
+            addLeaves(table, counts, index + 1, size + n, value + n * tileValue[index], tileValue, mean);
+        }
+        counts[index] = 0;
+    }
+
+    /**
+     * @param key - key of a leave
+     * @return - how many of each tile it has, blanks at 26
+     */
+    private static int[] counts(long key) {
+        int[] counts = new int[FREQ.length];
+        for(; key > 1; key >>>= 5) counts[(int)(key & 31) - 1]++;
+        return counts;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 3) {
+            System.err.println("Usage: LeaveTableBuilder dictionary games output [-gaddag]");
+            System.exit(1);
+        }
+        int games = Integer.parseInt(args[1]);
+        boolean useGaddag = args.length > 3 && args[3].equals("-gaddag");
+        Lexicon trie;
+        Lexicon gaddag = null;
+        if(PackedLexicon.isImage(args[0])) {
+            trie = PackedLexicon.load(args[0], PackedLexicon.TRIE);
+            if(useGaddag) gaddag = PackedLexicon.load(args[0], PackedLexicon.GADDAG);
+        }
+        else {
+            trie = PackedLexicon.pack(new TrieFileParser(args[0]).makeDawg());
+            if(useGaddag) gaddag = PackedLexicon.pack(new TrieFileParser(args[0]).makeGaddag());
+        }
+
+        LeaveTableBuilder builder = new LeaveTableBuilder();
+        for(int i = 0; i < games; i++) builder.playGame(trie, gaddag);
+        LeaveTable table = builder.build();
+        table.write(args[2]);
+        System.out.println("Wrote " + args[2] + ": " + table.size() + " leaves from "
+                + builder.count + " moves in " + games + " games");
+    }
+}
@@ -0,0 +1,65 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Read only view of a lexicon graph (trie, word graph or GADDAG) that the
+ * move generator and the move validation walk. Nodes are plain int handles
+ * rather than objects, so the graph can live in a flat array or a mapped
+ * file without building a node object for every letter.
+ */
+
+public interface Lexicon {
+    /**
+     * Handle returned when there is no node
+     */
+    int NONE = -1;
+
+    /**
+     * Child mask bits of the 26 letters, without the GADDAG separator
+     */
+    int ALL_LETTERS = (1 << 26) - 1;
+
+    /**
+     * @return - handle of the root node
+     */
+    int getRoot();
+
+    /**
+     * Get the child of a node containing the specified data (if there is one)
+     * @param node - handle of the node
+     * @param c - the data child should have
+     * @return - handle of the child, NONE if there is no such child
+     */
+    int getChild(int node, char c);
+
+    /**
+     * @param node - handle of the node
+     * @return - bitmask of the letters that follow the node, bit i is set
+     * for 'a'+i and bit 26 for the GADDAG separator
+     */
+    int getChildMask(int node);
+
+    /**
+     * @param node - handle of the node
+     * @return - true if the path from the root to the node is a word
+     */
+    boolean isTerminal(int node);
+
+    /**
+     * @return - number that tells this lexicon, or this version of a
+     * lexicon that changes, apart from every other one in the process, for
+     * keying caches without holding on to the lexicon
+     */
+    long getVersion();
+
+    /**
+     * Lexicons that can change while they are being read hand out an
+     * unchanging copy, walks that take more than one step (validating a
+     * word, a whole move generation) should go through it so that every
+     * handle they see comes from the same version of the lexicon.
+     * @return - lexicon that will not change, this one if it never changes
+     */
+    default Lexicon snapshot() {
+        return this;
+    }
+}
@@ -0,0 +1,28 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Command line tool that compiles a text dictionary into a binary lexicon
+ * image, which the solver can memory map instead of parsing the text file
+ * every time it starts.
+ * Usage: LexiconCompiler dictionary image [-gaddag]
+ * With -gaddag a GADDAG of the dictionary is stored in the image as well.
+ */
+
+import java.io.IOException;
+
+public class LexiconCompiler {
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.err.println("Usage: LexiconCompiler dictionary image [-gaddag]");
+            System.exit(1);
+        }
+        boolean gaddag = args.length > 2 && args[2].equals("-gaddag");
+        PackedLexicon trie = PackedLexicon.pack(new TrieFileParser(args[0]).makeDawg());
+        PackedLexicon packedGaddag = null;
+        if(gaddag) packedGaddag = PackedLexicon.pack(new TrieFileParser(args[0]).makeGaddag());
+        PackedLexicon.write(args[1], trie, packedGaddag);
+        System.out.println("Wrote " + args[1] + ": " + trie.getNodeCount() + " trie nodes"
+                + (gaddag ? ", " + packedGaddag.getNodeCount() + " GADDAG nodes" : ""));
+    }
+}
@@ -0,0 +1,309 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Keeps track of the dictionaries a process can use by name ("TWL06",
+ * "SOWPODS"...), so that every game or solve picks its lexicon by name and
+ * each dictionary is loaded at most once no matter how many games use it.
+ * Lexicons are loaded on background threads, either when first asked for
+ * or ahead of time through preload. Games acquire a lexicon and release it
+ * when they are done; once nobody is using a lexicon it is only kept
+ * softly, so it is reused if it is asked for again but the garbage
+ * collector can evict it when memory runs low.
+ */
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class LexiconRegistry {
+    private static LexiconRegistry defaultRegistry;
+
+    private final HashMap<String, Entry> entries;
+    private final HashMap<String, String> files;
+    private final HashMap<String, String> resources;
+    private final ExecutorService loader;
+    private boolean offHeap;
+
+    public LexiconRegistry() {
+        entries = new HashMap<>();
+        files = new HashMap<>();
+        resources = new HashMap<>();
+        loader = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "lexicon-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return - registry shared by the whole process, with the dictionaries
+     * that come with the game registered as "TWL06" and "SOWPODS"
+     */
+    public static synchronized LexiconRegistry getDefault() {
+        if(defaultRegistry == null) {
+            defaultRegistry = new LexiconRegistry();
+            defaultRegistry.registerResource("TWL06", "twl06.txt");
+            defaultRegistry.registerResource("SOWPODS", "sowpods.txt");
+        }
+        return defaultRegistry;
+    }
+
+    /**
+     * @param offHeap - whether lexicons built from text dictionaries are
+     *                kept outside of the Java heap. The garbage collector
+     *                only clears the soft reference to an unused lexicon
+     *                when the heap runs low, so one kept off heap is
+     *                seldom evicted.
+     */
+    public synchronized void setOffHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Register a dictionary file under a name. A lexicon loaded for the
+     * name from another dictionary before is dropped.
+     * @param name - name games will ask for
+     * @param fileName - text dictionary or lexicon image
+     * @throws IllegalStateException - if the name is in use with another
+     * dictionary
+     */
+    public synchronized void register(String name, String fileName) {
+        if(fileName.equals(files.get(name))) return;
+        forget(name);
+        files.put(name, fileName);
+        resources.remove(name);
+    }
+
+    /**
+     * Register a text dictionary on the class path under a name. A lexicon
+     * loaded for the name from another dictionary before is dropped.
+     * @param name - name games will ask for
+     * @param resourceName - name of the resource
+     * @throws IllegalStateException - if the name is in use with another
+     * dictionary
+     */
+    public synchronized void registerResource(String name, String resourceName) {
+        if(resourceName.equals(resources.get(name))) return;
+        forget(name);
+        resources.put(name, resourceName);
+        files.remove(name);
+    }
+
+    /**
+     * Drops the lexicons loaded for a name, so the next acquire reads the
+     * dictionary now registered under it
+     * @param name - name of the dictionary
+     */
+    private void forget(String name) {
+        Entry trie = entries.get(key(name, PackedLexicon.TRIE));
+        Entry gaddag = entries.get(key(name, PackedLexicon.GADDAG));
+        if((trie != null && trie.users > 0) || (gaddag != null && gaddag.users > 0)) {
+            //their releases would otherwise land on the entries of the new dictionary
+            throw new IllegalStateException(name + " is in use and can't be registered again");
+        }
+        entries.remove(key(name, PackedLexicon.TRIE));
+        entries.remove(key(name, PackedLexicon.GADDAG));
+    }
+
+    /**
+     * @return - names of every registered dictionary
+     */
+    public synchronized Set<String> getNames() {
+        Set<String> names = new TreeSet<>(files.keySet());
+        names.addAll(resources.keySet());
+        return names;
+    }
+
+    /**
+     * Start loading a lexicon in the background if it isn't loaded already
+     * @param name - name of the dictionary
+     * @param kind - PackedLexicon.TRIE or PackedLexicon.GADDAG
+     */
+    public synchronized void preload(String name, int kind) {
+        entry(name, kind).load();
+    }
+
+    /**
+     * Get a lexicon for a game, loading it if needed and waiting for it to
+     * finish loading. Every acquire should be matched with a release.
+     * @param name - name of the dictionary
+     * @param kind - PackedLexicon.TRIE or PackedLexicon.GADDAG
+     * @return - the lexicon
+     * @throws UncheckedIOException - if the dictionary can't be read, the
+     * next acquire tries to load it again
+     */
+    public Lexicon acquire(String name, int kind) {
+        CompletableFuture<Lexicon> future;
+        synchronized(this) {
+            Entry entry = entry(name, kind);
+            entry.users++;
+            future = entry.load();
+        }
+        try {
+            return future.join();
+        }
+        catch(CompletionException e) {
+            release(name, kind);
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Tell the registry that a game is done with a lexicon
+     * @param name - name of the dictionary
+     * @param kind - PackedLexicon.TRIE or PackedLexicon.GADDAG
+     */
+    public synchronized void release(String name, int kind) {
+        Entry entry = entries.get(key(name, kind));
+        if(entry == null || entry.users == 0) return;
+        entry.users--;
+        if(entry.users == 0) entry.evict();
+    }
+
+    /**
+     * @param name - name of the dictionary
+     * @param kind - PackedLexicon.TRIE or PackedLexicon.GADDAG
+     * @return - entry for the lexicon, made if needed
+     */
+    private Entry entry(String name, int kind) {
+        if(!files.containsKey(name) && !resources.containsKey(name)) {
+            throw new IllegalArgumentException("No dictionary registered as " + name);
+        }
+        return entries.computeIfAbsent(key(name, kind), key -> new Entry(name, kind));
+    }
+
+    private static String key(String name, int kind) {
+        return kind == PackedLexicon.GADDAG ? name + "/gaddag" : name;
+    }
+
+    /**
+     * Reads a lexicon from its dictionary, runs on the loader threads
+     * @param name - name of the dictionary
+     * @param kind - PackedLexicon.TRIE or PackedLexicon.GADDAG
+     * @return - the lexicon
+     */
+    private Lexicon read(String name, int kind) {
+        String fileName;
+        String resourceName;
+        boolean offHeap;
+        synchronized(this) {
+            fileName = files.get(name);
+            resourceName = resources.get(name);
+            offHeap = this.offHeap;
+        }
+        try {
+            if(fileName != null && PackedLexicon.isImage(fileName)) {
+                PackedLexicon lexicon = PackedLexicon.load(fileName, kind);
+                if(lexicon == null) throw new IOException(fileName + " has no GADDAG");
+                return lexicon;
+            }
+            if(fileName == null) {
+                PackedLexicon lexicon = readImageResource(resourceName, kind);
+                if(lexicon != null) return lexicon;
+            }
+            InputStream stream = fileName != null ? new FileInputStream(fileName)
+                    : ClassLoader.getSystemResourceAsStream(resourceName);
+            if(stream == null) throw new IOException("Resource " + resourceName + " not found");
+            TrieFileParser parser = new TrieFileParser(stream);
+            PackedLexicon lexicon = PackedLexicon.pack(kind == PackedLexicon.GADDAG ? parser.makeGaddag() : parser.makeDawg());
+            return offHeap ? lexicon.offHeap() : lexicon;
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Looks for a lexicon image compiled from a dictionary on the class
+     * path, kept next to it with the extension .lex (twl06.lex for
+     * twl06.txt), so the game doesn't parse the text dictionary every time
+     * it starts. Only images that are plain files can be memory mapped.
+     * @param resourceName - name of the text dictionary resource
+     * @param kind - PackedLexicon.TRIE or PackedLexicon.GADDAG
+     * @return - the lexicon, null if there is no such image or it doesn't
+     * have that kind of lexicon
+     */
+    private static PackedLexicon readImageResource(String resourceName, int kind) throws IOException {
+        int dot = resourceName.lastIndexOf('.');
+        String imageName = (dot < 0 ? resourceName : resourceName.substring(0, dot)) + ".lex";
+        URL url = ClassLoader.getSystemResource(imageName);
+        if(url == null || !url.getProtocol().equals("file")) return null;
+        String fileName;
+        try {
+            fileName = Path.of(url.toURI()).toString();
+        }
+        catch(URISyntaxException e) {
+            return null;
+        }
+        if(!PackedLexicon.isImage(fileName)) return null;
+        return PackedLexicon.load(fileName, kind);
+    }
+
+    /**
+     * One lexicon of the registry, guarded by the registry's lock
+     */
+    private class Entry {
+        private final String name;
+        private final int kind;
+        private CompletableFuture<Lexicon> future; //holds on to the lexicon while in use or loading
+        private SoftReference<Lexicon> evicted; //lexicon no game is using anymore
+        private int users;
+
+        Entry(String name, int kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        /**
+         * @return - the loaded lexicon or the load in progress, starting
+         * a load if there is neither
+         */
+        CompletableFuture<Lexicon> load() {
+            if(future != null && !future.isCompletedExceptionally()) return future;
+            Lexicon lexicon = evicted == null ? null : evicted.get();
+            evicted = null;
+            if(lexicon != null) {
+                future = CompletableFuture.completedFuture(lexicon);
+                return future;
+            }
+            CompletableFuture<Lexicon> loading = CompletableFuture.supplyAsync(() -> read(name, kind), loader);
+            future = loading;
+            //after a preload, or a release while loading, nobody is left to evict it
+            loading.whenComplete((loaded, e) -> {
+                synchronized(LexiconRegistry.this) {
+                    if(future == loading && users == 0) evict();
+                }
+            });
+            return loading;
+        }
+
+        /**
+         * Drop the strong reference to a loaded lexicon nobody uses. A load
+         * still in progress is evicted when it finishes.
+         */
+        void evict() {
+            if(future == null || !future.isDone()) return;
+            if(future.isCompletedExceptionally()) {
+                future = null; //nothing was loaded, the next load starts over
+                return;
+            }
+            Lexicon lexicon = future.getNow(null);
+            future = null;
+            if(lexicon != null) evicted = new SoftReference<>(lexicon);
+        }
+    }
+}
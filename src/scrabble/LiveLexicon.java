@@ -0,0 +1,361 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Lexicon that words can be added to and removed from while it is being
+ * used, without building it again from the dictionary file. The nodes are
+ * kept in the same layout as PackedLexicon. An update never changes a node
+ * that is already there: the nodes along the path of the word are copied
+ * to the end of the array with the change made (copy on write) and a new
+ * root is published. Readers take a snapshot, which keeps seeing the
+ * version of the lexicon it was taken from, so move generation on other
+ * threads can keep going while updates happen. Nodes that no longer lead
+ * to any word are pruned from the new path, and once enough old copies
+ * have piled up the array is compacted.
+ * Works for GADDAGs as well, a word is then added or removed along every
+ * one of its GADDAG paths.
+ * The nodes are always kept in an array on the heap, a lexicon that is off
+ * heap or memory mapped is copied onto the heap to start from.
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class LiveLexicon implements Lexicon {
+    private static final int TERMINAL = 1 << 31;
+
+    private final boolean gaddag;
+    private int[] nodes; //two ints per node, same layout as PackedLexicon
+    private int end; //how many nodes are used
+    private int root;
+    private int compactedSize; //how many nodes there were after the last compaction
+    private volatile PackedLexicon current;
+
+    /**
+     * @param base - lexicon to start from, copied onto the heap
+     * @param gaddag - whether base is a GADDAG
+     */
+    public LiveLexicon(PackedLexicon base, boolean gaddag) {
+        this.gaddag = gaddag;
+        nodes = base.toArray();
+        end = nodes.length / 2;
+        root = base.getRoot();
+        compactedSize = end;
+        publish();
+    }
+
+    /**
+     * Add a word to the lexicon
+     * @param word - word to add
+     * @return - true if the word was added, false if it was already there
+     */
+    public synchronized boolean add(String word) {
+        if(word.isEmpty()) return false;
+        boolean changed = false;
+        for(char[] path : paths(word)) {
+            long rootRecord = record(root);
+            long updated = insert(rootRecord, path, 0);
+            if(updated == rootRecord) continue;
+            root = append(updated);
+            changed = true;
+        }
+        if(changed) publish();
+        return changed;
+    }
+
+    /**
+     * Remove a word from the lexicon, pruning the nodes that were only
+     * there for that word
+     * @param word - word to remove
+     * @return - true if the word was removed, false if it wasn't there
+     */
+    public synchronized boolean remove(String word) {
+        if(word.isEmpty()) return false;
+        boolean changed = false;
+        for(char[] path : paths(word)) {
+            long rootRecord = record(root);
+            long updated = delete(rootRecord, path, 0);
+            if(updated == rootRecord) continue;
+            root = append(updated);
+            changed = true;
+        }
+        if(changed) publish();
+        return changed;
+    }
+
+    /**
+     * @param word - word to look for
+     * @return - true if the word is in the lexicon
+     */
+    public boolean contains(String word) {
+        if(word.isEmpty()) return false;
+        Lexicon lexicon = snapshot();
+        char[] path = paths(word)[0];
+        int node = lexicon.getRoot();
+        for(int i = 0; i < path.length && node != NONE; i++) node = lexicon.getChild(node, path[i]);
+        return node != NONE && lexicon.isTerminal(node);
+    }
+
+    /**
+     * Applies a dictionary patch, one word per line. Lines starting with
+     * '-' remove the word after it, lines starting with '+' or with the
+     * word itself add it. Blank lines are skipped.
+     * @param stream - patch to read
+     * @return - how many words were actually added or removed
+     * @throws IOException - if the patch can't be read
+     */
+    public int applyPatch(InputStream stream) throws IOException {
+        int changed = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+        String line;
+        while((line = reader.readLine()) != null) {
+            line = line.trim();
+            if(line.isEmpty()) continue;
+            if(line.charAt(0) == '-') {
+                if(remove(line.substring(1).trim())) changed++;
+            }
+            else if(line.charAt(0) == '+') {
+                if(add(line.substring(1).trim())) changed++;
+            }
+            else if(add(line)) changed++;
+        }
+        return changed;
+    }
+
+    /**
+     * @return - the current version of the lexicon, which never changes
+     */
+    @Override
+    public Lexicon snapshot() {
+        return current;
+    }
+
+    /**
+     * Lookups on the lexicon itself use whatever version is current when
+     * they are made, walks should use a snapshot instead
+     */
+    @Override
+    public int getRoot() {
+        return current.getRoot();
+    }
+
+    @Override
+    public int getChild(int node, char c) {
+        return current.getChild(node, c);
+    }
+
+    @Override
+    public int getChildMask(int node) {
+        return current.getChildMask(node);
+    }
+
+    @Override
+    public boolean isTerminal(int node) {
+        return current.isTerminal(node);
+    }
+
+    /**
+     * @return - version of the current snapshot, every update makes a new one
+     */
+    @Override
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+    /**
+     * Makes the paths a word is stored under, the word itself for a trie,
+     * or the reversed prefix, separator and suffix for every split point
+     * of the word for a GADDAG
+     * @param word - word to get the paths of
+     * @return - the paths, lowercased
+     */
+    private char[][] paths(String word) {
+        char[] letters = word.toLowerCase().toCharArray();
+        if(!gaddag) return new char[][]{letters};
+        char[][] paths = new char[letters.length][];
+        for(int split = 1; split <= letters.length; split++) {
+            int length = split < letters.length ? letters.length + 1 : letters.length;
+            char[] path = new char[length];
+            for(int i = 0; i < split; i++) path[i] = letters[split - 1 - i];
+            if(split < letters.length) {
+                path[split] = TrieNode.SEPARATOR;
+                System.arraycopy(letters, split, path, split + 1, letters.length - split);
+            }
+            paths[split - 1] = path;
+        }
+        return paths;
+    }
+
+    /**
+     * Copy on write insert of a path below a node
+     * @param record - the node (mask word and first child packed in a long)
+     * @param path - path to insert
+     * @param i - how much of the path is above the node
+     * @return - the updated node, the same record if nothing changed
+     */
+    private long insert(long record, char[] path, int i) {
+        int word = word(record);
+        int first = first(record);
+        if(i == path.length) {
+            if((word & TERMINAL) != 0) return record;
+            return record(word | TERMINAL, first);
+        }
+        int index = TrieNode.indexOf(path[i]);
+        if(index < 0) return record;
+        int bit = 1 << index;
+        int mask = word & ~TERMINAL;
+        int pos = Integer.bitCount(mask & (bit - 1));
+        int count = Integer.bitCount(mask);
+        if((mask & bit) != 0) {
+            long child = record(first + pos);
+            long newChild = insert(child, path, i + 1);
+            if(newChild == child) return record;
+            return record(word, copyBlock(first, count, pos, newChild, false));
+        }
+        long newChild = chain(path, i + 1);
+        if(newChild == 0) return record;
+        return record(word | bit, copyBlock(first, count, pos, newChild, true));
+    }
+
+    /**
+     * Makes new nodes for the rest of a path that is not in the lexicon
+     * @param path - path being inserted
+     * @param i - how much of the path is above the node to make
+     * @return - the new node, 0 if the path has a character that can't
+     * be stored
+     */
+    private long chain(char[] path, int i) {
+        if(i == path.length) return record(TERMINAL, 0);
+        int index = TrieNode.indexOf(path[i]);
+        if(index < 0) return 0;
+        long child = chain(path, i + 1);
+        if(child == 0) return 0;
+        return record(1 << index, append(child));
+    }
+
+    /**
+     * Copy on write delete of a path below a node. Children that end up
+     * with no children and no word are dropped.
+     * @param record - the node
+     * @param path - path to delete
+     * @param i - how much of the path is above the node
+     * @return - the updated node, the same record if the path wasn't there
+     */
+    private long delete(long record, char[] path, int i) {
+        int word = word(record);
+        int first = first(record);
+        if(i == path.length) {
+            if((word & TERMINAL) == 0) return record;
+            return record(word & ~TERMINAL, first);
+        }
+        int index = TrieNode.indexOf(path[i]);
+        if(index < 0) return record;
+        int bit = 1 << index;
+        int mask = word & ~TERMINAL;
+        if((mask & bit) == 0) return record;
+        int pos = Integer.bitCount(mask & (bit - 1));
+        int count = Integer.bitCount(mask);
+        long child = record(first + pos);
+        long newChild = delete(child, path, i + 1);
+        if(newChild == child) return record;
+        if(word(newChild) != 0) return record(word, copyBlock(first, count, pos, newChild, false));
+        //child is dead, prune it
+        if(count == 1) return record(word & ~bit, 0);
+        return record(word & ~bit, copyBlock(first, count, pos, 0, false));
+    }
+
+    /**
+     * Copies a block of children to the end of the array with one change
+     * @param first - first node of the block
+     * @param count - how many nodes are in the block
+     * @param pos - position of the change
+     * @param newRecord - node to put at pos, 0 to drop the node at pos
+     * @param insert - whether newRecord goes in before pos or replaces it
+     * @return - first node of the copy
+     */
+    private int copyBlock(int first, int count, int pos, long newRecord, boolean insert) {
+        int newFirst = end;
+        for(int i = 0; i < count; i++) {
+            if(i == pos) {
+                if(newRecord != 0) append(newRecord);
+                if(insert) append(record(first + i));
+            }
+            else append(record(first + i));
+        }
+        if(insert && pos == count) append(newRecord);
+        return newFirst;
+    }
+
+    /**
+     * @param record - node to put at the end of the array
+     * @return - handle of the node
+     */
+    private int append(long record) {
+        if(2 * end + 2 > nodes.length) nodes = Arrays.copyOf(nodes, Math.max(2 * nodes.length, 16));
+        nodes[2 * end] = word(record);
+        nodes[2 * end + 1] = first(record);
+        return end++;
+    }
+
+    /**
+     * Publishes the nodes written so far as the new current version,
+     * compacting first if most of the array is old copies
+     */
+    private void publish() {
+        if(end > 2 * compactedSize) compact();
+        current = new PackedLexicon(IntBuffer.wrap(nodes, 0, 2 * end), root);
+    }
+
+    /**
+     * Copies everything reachable from the root into a fresh array. The
+     * old array is left as it is for snapshots that still use it.
+     */
+    private void compact() {
+        int[] old = nodes;
+        nodes = new int[old.length];
+        end = 0;
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        append(((long)old[2 * root] << 32) | (old[2 * root + 1] & 0xFFFFFFFFL));
+        root = 0;
+        //walk the new array as it grows, remapping every child block once
+        for(int node = 0; node < end; node++) {
+            int count = Integer.bitCount(nodes[2 * node] & ~TERMINAL);
+            if(count == 0) {
+                nodes[2 * node + 1] = 0;
+                continue;
+            }
+            int oldFirst = nodes[2 * node + 1];
+            Integer newFirst = blocks.get(oldFirst);
+            if(newFirst == null) {
+                newFirst = end;
+                blocks.put(oldFirst, newFirst);
+                for(int i = 0; i < count; i++) {
+                    append(((long)old[2 * (oldFirst + i)] << 32) | (old[2 * (oldFirst + i) + 1] & 0xFFFFFFFFL));
+                }
+            }
+            nodes[2 * node + 1] = newFirst;
+        }
+        compactedSize = end;
+    }
+
+    private long record(int node) {
+        return record(nodes[2 * node], nodes[2 * node + 1]);
+    }
+
+    private static long record(int word, int first) {
+        return ((long)word << 32) | (first & 0xFFFFFFFFL);
+    }
+
+    private static int word(long record) {
+        return (int)(record >>> 32);
+    }
+
+    private static int first(long record) {
+        return (int)record;
+    }
+}
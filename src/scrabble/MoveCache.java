@@ -0,0 +1,180 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Remembers what move generation found for a position, so asking again
+ * about the same board and rack with the same lexicon gives the answer
+ * straight away instead of searching again. Positions are looked up by the
+ * Zobrist hashes of the board and the rack (Board.getHash, Rack.getHash)
+ * together with the lexicon version the moves were found with, so an
+ * update to a LiveLexicon makes new entries instead of reusing stale ones.
+ * Both the best move that makeMove plays and the top moves of
+ * generateMoves are kept. The cache holds at most a fixed number of moves,
+ * and when it is full the entries that were used longest ago are dropped.
+ * One cache can be shared by any number of players and boards.
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MoveCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, Object> entries; //MoveInfo or MoveList, least recently used first
+    private int weight; //moves held by the entries
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity - how many moves to hold at most, a best move counts
+     *                 as one and a list of top moves as its size plus one
+     */
+    public MoveCache(int capacity) {
+        this.capacity = capacity;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param board - hash of the board
+     * @param rack - hash of the rack
+     * @param lexicon - snapshot of the lexicon the move was found with
+     * @param leaves - leave values the move was picked by, null for score
+     * @return - copy of the best move found for the position, null if it
+     * isn't in the cache
+     */
+    public synchronized MoveInfo getBest(long board, long rack, Lexicon lexicon, LeaveTable leaves) {
+        MoveInfo move = (MoveInfo)lookup(new Key(board, rack, lexicon, leaves, 0));
+        return move == null ? null : copy(move);
+    }
+
+    /**
+     * Remembers the best move of a position, see getBest
+     * @param move - the move, copied
+     */
+    public synchronized void putBest(long board, long rack, Lexicon lexicon, LeaveTable leaves, MoveInfo move) {
+        store(new Key(board, rack, lexicon, leaves, 0), copy(move), 1);
+    }
+
+    /**
+     * @param board - hash of the board
+     * @param rack - hash of the rack
+     * @param lexicon - snapshot of the lexicon the moves were found with
+     * @param leaves - leave values the moves were ranked by, null for score
+     * @param k - how many moves were asked for
+     * @return - the k best moves of the position, null if they aren't in
+     * the cache. Shared with the cache, must not be added to.
+     */
+    public synchronized MoveList getTop(long board, long rack, Lexicon lexicon, LeaveTable leaves, int k) {
+        return (MoveList)lookup(new Key(board, rack, lexicon, leaves, k));
+    }
+
+    /**
+     * Remembers the top moves of a position, see getTop
+     * @param moves - the moves, kept as they are
+     */
+    public synchronized void putTop(long board, long rack, Lexicon lexicon, LeaveTable leaves, int k, MoveList moves) {
+        store(new Key(board, rack, lexicon, leaves, k), moves, moves.size() + 1);
+    }
+
+    /**
+     * @return - how many lookups found their position
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return - how many lookups didn't find their position
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return - how many positions are in the cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forgets every position, the counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private Object lookup(Key key) {
+        Object value = entries.get(key);
+        if(value == null) misses++;
+        else hits++;
+        return value;
+    }
+
+    private void store(Key key, Object value, int moves) {
+        if(moves > capacity) return;
+        Object old = entries.put(key, value);
+        if(old != null) weight -= weight(old);
+        weight += moves;
+        Iterator<Map.Entry<Key, Object>> eldest = entries.entrySet().iterator();
+        while(weight > capacity) {
+            weight -= weight(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static int weight(Object value) {
+        return value instanceof MoveList ? ((MoveList)value).size() + 1 : 1;
+    }
+
+    private static MoveInfo copy(MoveInfo move) {
+        MoveInfo copy = new MoveInfo();
+        copy.setWord(move.getWord());
+        copy.setScore(move.getScore());
+        copy.setRow(move.getRow());
+        copy.setCol(move.getCol());
+        copy.setDirection(move.getDirection());
+        copy.setMoveSuccess(move.getMoveSuccess());
+        return copy;
+    }
+
+    /**
+     * A position and what was asked about it. Lexicons are told apart by
+     * their version number rather than kept in the key, so entries of an
+     * old LiveLexicon version don't keep its nodes from being collected.
+     * Leave tables are told apart by identity.
+     */
+    private static final class Key {
+        private final long board;
+        private final long rack;
+        private final long lexicon; //version of the lexicon snapshot
+        private final LeaveTable leaves;
+        private final int k; //0 for the best move, otherwise how many top moves
+
+        Key(long board, long rack, Lexicon lexicon, LeaveTable leaves, int k) {
+            this.board = board;
+            this.rack = rack;
+            this.lexicon = lexicon.getVersion();
+            this.leaves = leaves;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) return false;
+            Key other = (Key)o;
+            return board == other.board && rack == other.rack && lexicon == other.lexicon
+                    && leaves == other.leaves && k == other.k;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = board * 31 + rack;
+            h = h * 31 + lexicon;
+            h = h * 31 + System.identityHashCode(leaves);
+            h = h * 31 + k;
+            return (int)(h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Receives the moves found by ComputerPlayer.generateMoves one at a time.
+ * The word is handed over as part of the search's own buffer so no object
+ * has to be made per move, copy it if it is needed after accept returns.
+ */
+
+public interface MoveConsumer {
+    /**
+     * @param word - buffer holding the word, uppercase letters are blanks
+     * @param start - where the word starts in the buffer
+     * @param length - how long the word is
+     * @param row - row of the first letter of the word
+     * @param col - column of the first letter of the word
+     * @param direction - direction in which the word is placed
+     * @param score - points the move is worth, bonus included
+     * @param equity - score plus what the tiles left in the hand are worth,
+     *               just the score when the player has no leave table
+     */
+    void accept(char[] word, int start, int length, int row, int col, Board.Direction direction, int score, float equity);
+}
@@ -0,0 +1,205 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * The best moves out of all the moves given to it, at most a fixed number
+ * of them. Moves are kept in primitive arrays (score, packed position and
+ * the letters of the word in a fixed size slot) instead of as objects, and
+ * a min-heap of slots keeps the worst kept move on top, so a new move only
+ * costs a comparison unless it beats that one. Moves are ordered the same
+ * way ComputerPlayer picks its move: by equity (the score when there is no
+ * leave table), then row, column, across before down and then word. Once
+ * generation is done the moves can be read back best first by rank.
+ */
+
+import java.util.Arrays;
+
+public class MoveList implements MoveConsumer {
+    private final int capacity;
+    private final int stride; //longest word that fits, the size of the board
+    private int[] scores;
+    private float[] equities;
+    private int[] places; //row, column and direction packed into one int
+    private int[] lengths;
+    private char[] letters; //slot i holds its word at i*stride
+    private int[] heap; //slots, worst move first
+    private int size;
+    private int[] ranked; //slots best first, made when the moves are first read
+
+    /**
+     * @param capacity - how many moves to keep at most
+     * @param boardSize - size of the board the moves are made on
+     */
+    public MoveList(int capacity, int boardSize) {
+        this.capacity = capacity;
+        stride = boardSize;
+        int slots = Math.max(1, Math.min(capacity, 64));
+        scores = new int[slots];
+        equities = new float[slots];
+        places = new int[slots];
+        lengths = new int[slots];
+        letters = new char[slots * stride];
+        heap = new int[slots];
+    }
+
+    @Override
+    public void accept(char[] word, int start, int length, int row, int col, Board.Direction direction, int score, float equity) {
+        if(capacity <= 0) return;
+        int place = (row << 16) | (col << 1) | (direction == Board.Direction.ACROSS ? 0 : 1);
+        int slot;
+        if(size < capacity) {
+            if(size == scores.length) grow();
+            slot = size;
+            heap[size] = slot;
+            write(slot, word, start, length, place, score, equity);
+            siftUp(size++);
+        }
+        else {
+            slot = heap[0];
+            if(compare(equity, place, word, start, length, slot) <= 0) return;
+            write(slot, word, start, length, place, score, equity);
+            siftDown(0);
+        }
+        ranked = null;
+    }
+
+    /**
+     * @return - how many moves are kept
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param rank - 0 for the best move, 1 for the next best...
+     * @return - word of the move, uppercase letters are blanks
+     */
+    public String getWord(int rank) {
+        int slot = slot(rank);
+        return new String(letters, slot * stride, lengths[slot]);
+    }
+
+    public int getScore(int rank) {
+        return scores[slot(rank)];
+    }
+
+    /**
+     * @param rank - 0 for the best move, 1 for the next best...
+     * @return - score plus leave value of the move, the score when there
+     * is no leave table
+     */
+    public float getEquity(int rank) {
+        return equities[slot(rank)];
+    }
+
+    public int getRow(int rank) {
+        return places[slot(rank)] >>> 16;
+    }
+
+    public int getCol(int rank) {
+        return (places[slot(rank)] >>> 1) & 0x7FFF;
+    }
+
+    public Board.Direction getDirection(int rank) {
+        return (places[slot(rank)] & 1) == 0 ? Board.Direction.ACROSS : Board.Direction.DOWN;
+    }
+
+    /**
+     * @param rank - 0 for the best move, 1 for the next best...
+     * @return - the move as a MoveInfo, for handing to code that plays it
+     */
+    public MoveInfo getMoveInfo(int rank) {
+        MoveInfo info = new MoveInfo();
+        info.setWord(getWord(rank));
+        info.setScore(getScore(rank));
+        info.setRow(getRow(rank));
+        info.setCol(getCol(rank));
+        info.setDirection(getDirection(rank));
+        info.setMoveSuccess(true);
+        return info;
+    }
+
+    /**
+     * @param rank - rank of a move
+     * @return - slot the move is in
+     */
+    private int slot(int rank) {
+        if(rank < 0 || rank >= size) throw new IndexOutOfBoundsException("rank " + rank + " of " + size);
+        if(ranked == null) {
+            Integer[] slots = new Integer[size];
+            for(int i = 0; i < size; i++) slots[i] = heap[i];
+            Arrays.sort(slots, (a, b) -> compare(b, a));
+            ranked = new int[size];
+            for(int i = 0; i < size; i++) ranked[i] = slots[i];
+        }
+        return ranked[rank];
+    }
+
+    private void write(int slot, char[] word, int start, int length, int place, int score, float equity) {
+        scores[slot] = score;
+        equities[slot] = equity;
+        places[slot] = place;
+        lengths[slot] = length;
+        System.arraycopy(word, start, letters, slot * stride, length);
+    }
+
+    private void grow() {
+        int slots = (int)Math.min((long)capacity, 2L * scores.length);
+        scores = Arrays.copyOf(scores, slots);
+        equities = Arrays.copyOf(equities, slots);
+        places = Arrays.copyOf(places, slots);
+        lengths = Arrays.copyOf(lengths, slots);
+        letters = Arrays.copyOf(letters, slots * stride);
+        heap = Arrays.copyOf(heap, slots);
+    }
+
+    private void siftUp(int i) {
+        while(i > 0) {
+            int parent = (i - 1) / 2;
+            if(compare(heap[i], heap[parent]) >= 0) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= size) return;
+            if(child + 1 < size && compare(heap[child + 1], heap[child]) < 0) child++;
+            if(compare(heap[child], heap[i]) >= 0) return;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int slot = heap[i];
+        heap[i] = heap[j];
+        heap[j] = slot;
+    }
+
+    /**
+     * @return - positive if the move in slot a is better than the move in
+     * slot b, negative if it is worse, 0 if they are the same move
+     */
+    private int compare(int a, int b) {
+        return compare(equities[a], places[a], letters, a * stride, lengths[a], b);
+    }
+
+    /**
+     * @return - positive if the given move is better than the move in the
+     * slot, negative if it is worse, 0 if they are the same move
+     */
+    private int compare(float equity, int place, char[] word, int start, int length, int slot) {
+        if(equity != equities[slot]) return equity > equities[slot] ? 1 : -1;
+        //lower row, then lower column, then across, is better
+        if(place != places[slot]) return place < places[slot] ? 1 : -1;
+        int other = slot * stride;
+        for(int i = 0; i < length && i < lengths[slot]; i++) {
+            char c = word[start + i];
+            if(c != letters[other + i]) return c < letters[other + i] ? 1 : -1;
+        }
+        return Integer.compare(lengths[slot], length);
+    }
+}
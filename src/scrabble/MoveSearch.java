@@ -0,0 +1,900 @@
+package scrabble;
+/**
+ * Andrew Geyko
+ * The search for the best move from a set of anchors, split out of
+ * ComputerPlayer so that several searches can run at the same time. Each
+ * search has its own copy of the hand, its own word buffer and its own
+ * best move, and only reads the board, anchors and lexicons, which are
+ * shared. ComputerPlayer runs one search over every anchor, or one per
+ * anchor and direction when generating moves in parallel, and then keeps
+ * the best of the best moves.
+ */
+
+import java.util.Arrays;
+
+class MoveSearch {
+    private final Board board;
+    private final AnchorSet anchors;
+    private final Lexicon lexicon;
+    private final Lexicon gaddag;
+    private final Rack hand;
+    private final char[] word; //word being built, reused for every move tried
+    private final int middle; //where the word starts in the buffer for each anchor
+    private int wordStart; //the word is word[wordStart] up to word[wordEnd-1]
+    private int wordEnd;
+    private int mainScore; //points of the letters of the word so far, before the word multiplier
+    private int wordMultiplier; //product of the word multipliers under the new letters
+    private int crossScore; //points of the cross words made by the new letters
+    private int anchorTiles; //how many new letters are on anchor squares
+    private int crossWords; //how many cross words the new letters make
+    private final int handSize; //tiles in the hand before the search
+    private MoveConsumer sink; //where every move goes, null to only keep the best
+    private boolean pruning;
+    //The line being searched, by index along it, for working out how many
+    //points a move can still reach, see measureLine and prune
+    private int anchorIndex; //index of the anchor on the line
+    private final int[] lineScores; //points of the tile on the square, -1 if empty
+    private final int[] lineCharMultipliers;
+    private final int[] lineWordMultipliers;
+    private final int[] lineCrossLetters; //what a letter point on the square adds to its cross word, 0 if none
+    private final int[] lineCrossSums; //points of the cross word of the square without the letter, 0 if none
+    private final boolean[] lineAnchors;
+    //What the squares a move can still take from a square add up to, for
+    //k new tiles, worked out the first time the search gets to the square,
+    //see window. [0] is for going right (down) from the square and [1] for
+    //going left (up). Slot i*(handSize+1)+k holds, for square index i and k
+    //tiles, the points of the tiles the word has to join, the product of
+    //the word multipliers and the cross words without their new letters.
+    //The letter multipliers and cross letters of the k squares, biggest
+    //first, start at slot*handSize.
+    private final int[][] windowMost; //most new tiles that fit, -1 if not worked out
+    private final int[][] windowFilled;
+    private final int[][] windowMultipliers;
+    private final int[][] windowCross;
+    private final int[][] windowChar;
+    private final int[][] windowCrossLetters;
+    private final int[] sortedChar; //working space for window
+    private final int[] sortedCross;
+    private final int[] rackValues; //points of the tiles left, biggest first
+    private LeaveTable leaves; //null to pick moves by score alone
+    private float maxLeave; //most any leave is worth, for pruning
+
+    private String bestWord;
+    private int bestScore;
+    private float bestEquity; //score plus leave value of the best move, just the score without leaves
+    private Board.Direction bestDirection;
+    private int bestRow;
+    private int bestCol;
+    private int currRow;
+    private int currCol;
+    private int origin; //square of the anchor being searched
+    private int step; //how far the next square along the line being searched is
+
+    /**
+     * @param board - board to search, not changed by the search
+     * @param anchors - anchors of the board with their cross checks computed
+     * @param lexicon - trie snapshot to search with
+     * @param gaddag - GADDAG snapshot to search with instead, or null
+     * @param hand - hand to make moves from, the search works on a copy
+     */
+    MoveSearch(Board board, AnchorSet anchors, Lexicon lexicon, Lexicon gaddag, Rack hand) {
+        this.board = board;
+        this.anchors = anchors;
+        this.lexicon = lexicon;
+        this.gaddag = gaddag;
+        this.hand = new Rack(hand);
+        handSize = hand.size();
+        int size = board.getSize();
+        lineScores = new int[size];
+        lineCharMultipliers = new int[size];
+        lineWordMultipliers = new int[size];
+        lineCrossLetters = new int[size];
+        lineCrossSums = new int[size];
+        lineAnchors = new boolean[size];
+        int slots = (size + 1) * (handSize + 1);
+        windowMost = new int[2][size + 1];
+        windowFilled = new int[2][slots];
+        windowMultipliers = new int[2][slots];
+        windowCross = new int[2][slots];
+        windowChar = new int[2][slots * handSize];
+        windowCrossLetters = new int[2][slots * handSize];
+        sortedChar = new int[handSize];
+        sortedCross = new int[handSize];
+        rackValues = new int[handSize];
+        middle = board.getSize() + 1;
+        word = new char[2 * middle];
+        bestWord = "";
+        bestScore = 0;
+        bestEquity = 0;
+        bestDirection = null;
+    }
+
+    /**
+     * @param sink - where to hand every move found instead of keeping the
+     *             best one. A play of a single tile that makes a word both
+     *             ways is only handed over once, the way isBetter would
+     *             pick between its across and down word.
+     */
+    void setSink(MoveConsumer sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @param pruning - whether to cut off branches of the search that can't
+     *                beat the best move found so far. The best move found is
+     *                the same either way. Has no effect with a sink.
+     */
+    void setPruning(boolean pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * @param leaves - what the tiles left in the hand after a move are
+     *               worth. The best move is then the one with the most
+     *               score plus leave value, and it may score 0. Null to
+     *               go by score alone. With a sink, the equity is handed
+     *               over with every move.
+     */
+    void setLeaves(LeaveTable leaves) {
+        this.leaves = leaves;
+        maxLeave = leaves == null ? 0 : leaves.getMaxValue();
+        bestEquity = leaves == null ? 0 : Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return - word of the best move found, empty if there is none
+     */
+    String getBestWord() {
+        return bestWord;
+    }
+
+    int getBestScore() {
+        return bestScore;
+    }
+
+    Board.Direction getBestDirection() {
+        return bestDirection;
+    }
+
+    int getBestRow() {
+        return bestRow;
+    }
+
+    int getBestCol() {
+        return bestCol;
+    }
+
+    /**
+     * @param other - another search over the same board and hand
+     * @return - true if the best move of this search beats the best move
+     * of the other one, using the same ordering as isBetter
+     */
+    boolean beats(MoveSearch other) {
+        if(bestWord.isEmpty()) return false;
+        if(other.bestWord.isEmpty()) return true;
+        if(bestEquity != other.bestEquity) return bestEquity > other.bestEquity;
+        if(bestRow != other.bestRow) return bestRow < other.bestRow;
+        if(bestCol != other.bestCol) return bestCol < other.bestCol;
+        if(bestDirection != other.bestDirection) return bestDirection == Board.Direction.ACROSS;
+        return bestWord.compareTo(other.bestWord) < 0;
+    }
+
+    /**
+     * Find the moves through one anchor in one direction, keeping the best.
+     * With a GADDAG, generates from the anchor outward. Otherwise computes
+     * the "before" part somehow (either through seeing what came before or
+     * calling leftPart/topPart) and then extends right (down).
+     * @param anchor - square of the anchor the moves go through
+     * @param direction - direction of the moves
+     */
+    void search(int anchor, Board.Direction direction) {
+        currCol = anchors.getCol(anchor);
+        currRow = anchors.getRow(anchor);
+        origin = anchor;
+        step = direction == Board.Direction.ACROSS ? 1 : board.getStride();
+        wordStart = wordEnd = middle;
+        if(pruning) measureLine(direction);
+
+        if(gaddag != null) {
+            scorePrefix(direction);
+            gen(0, 0, gaddag.getRoot(), direction);
+            return;
+        }
+        if(direction == Board.Direction.ACROSS) searchAcross(anchor);
+        else searchDown(anchor);
+    }
+
+    /**
+     * Across moves through an anchor with the trie search
+     * @param anchor - square of the anchor the moves go through
+     */
+    private void searchAcross(int anchor) {
+        int prev = anchor - 1;
+        //If the node is at the edge of board, just extendRight
+        if(board.isBorder(prev)) {
+            scorePrefix(Board.Direction.ACROSS);
+            extendRight(lexicon.getRoot(), anchor);
+        }
+        //if the node before is empty, see how much empty space we have
+        //to form the left part
+        else if(board.isEmpty(prev)) {
+            int lim = 0;
+            while (!board.isBorder(prev) && !anchors.isAnchor(prev)) {
+                lim += 1;
+                prev = anchor - lim;
+            }
+            leftPart(lexicon.getRoot(), lim-1, anchor);
+        }
+        //If there is something before the anchor, compute that "left part"
+        //and then extendRight
+        else {
+            while(board.hasTile(prev)) {
+                currCol--;
+                prev--;
+            }
+            int node = lexicon.getRoot();
+            for(int square = prev + 1; square < anchor && node != Lexicon.NONE; square++) {
+                char c = board.getLetter(square);
+                node = lexicon.getChild(node, Character.toLowerCase(c));
+                push(c);
+            }
+            if(node != Lexicon.NONE) {
+                scorePrefix(Board.Direction.ACROSS);
+                extendRight(node, anchor);
+            }
+        }
+    }
+
+    /**
+     * Down moves through an anchor with the trie search
+     * @param anchor - square of the anchor the moves go through
+     */
+    private void searchDown(int anchor) {
+        int stride = board.getStride();
+        int prev = anchor - stride;
+        //If the node is at the edge of board, just extendDown
+        if(board.isBorder(prev)) {
+            scorePrefix(Board.Direction.DOWN);
+            extendDown(lexicon.getRoot(), anchor);
+        }
+        //if the node before is empty, see how much empty space we have
+        //to form the top part
+        else if(board.isEmpty(prev)) {
+            int lim = 0;
+            while(!board.isBorder(prev) && !anchors.isAnchor(prev)) {
+                lim += 1;
+                prev = anchor - lim * stride;
+            }
+            topPart(lexicon.getRoot(), lim-1, anchor);
+        }
+        //If there is something before the anchor, compute the "top part"
+        //and then extendDown
+        else {
+            while(board.hasTile(prev)) {
+                currRow--;
+                prev -= stride;
+            }
+            int node = lexicon.getRoot();
+            for(int square = prev + stride; square < anchor && node != Lexicon.NONE; square += stride) {
+                char c = board.getLetter(square);
+                node = lexicon.getChild(node, Character.toLowerCase(c));
+                push(c);
+            }
+            if(node != Lexicon.NONE) {
+                scorePrefix(Board.Direction.DOWN);
+                extendDown(node, anchor);
+            }
+        }
+    }
+
+    /**
+     * Computes all possible "left parts" before a given anchor. For each of these
+     * left parts that we generate, attempt to extendRight to find complete
+     * words.
+     * @param node - node in he trie where we currently are
+     * @param lim - how much space we have to form the left part
+     * @param anchor - anchor square that we are forming the left part of
+     */
+    private void leftPart(int node, int lim, int anchor) {
+        scorePrefix(Board.Direction.ACROSS);
+        extendRight(node, anchor);
+        if(lim > 0) {
+            int candidates = lexicon.getChildMask(node) & hand.getMask();
+            while(candidates != 0) {
+                char c = (char)('a' + Integer.numberOfTrailingZeros(candidates));
+                candidates &= candidates - 1;
+                if(hand.contains(c)) {
+                    hand.take(c);
+                    currCol--;
+                    int newNode = lexicon.getChild(node, c);
+                    push(c);
+                    leftPart(newNode, lim - 1, anchor);
+                    pop();
+                    currCol++;
+                    hand.add(c);
+                }
+                if(hand.hasBlank()) {
+                    hand.take(Rack.BLANK);
+                    currCol--;
+                    int newNode = lexicon.getChild(node, c);
+                    push(Character.toUpperCase(c));
+                    leftPart(newNode,lim - 1, anchor);
+                    pop();
+                    currCol++;
+                    hand.add(Rack.BLANK);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find all valid permutations of a given left part in the across direction,
+     * calls checkWord for every valid permutation found. This is the same
+     * backtracking algorithm that was described in the "worlds fastest scrabble
+     * program" paper.
+     * @param node - node in the trie where we currently are
+     * @param square - square on the board where we currently are
+     */
+    private void extendRight(int node, int square) {
+        if(board.isBorder(square)) {
+            if(lexicon.isTerminal(node)) checkWord(currRow, currCol, Board.Direction.ACROSS);
+            return;
+        }
+        if(board.isEmpty(square)) {
+            if(lexicon.isTerminal(node)) checkWord(currRow, currCol, Board.Direction.ACROSS);
+            if(prune(anchorIndex + square - origin, false)) return;
+            boolean anchor = anchors.isAnchor(square);
+            int candidates = lexicon.getChildMask(node) & hand.getMask();
+            if(anchor) candidates &= anchors.getVCheckMask(square);
+            while(candidates != 0) {
+                char c = (char)('a' + Integer.numberOfTrailingZeros(candidates));
+                candidates &= candidates - 1;
+                if(hand.contains(c)) {
+                    hand.take(c);
+                    int newNode = lexicon.getChild(node, c);
+                    int nextSquare = square + 1;
+                    push(c);
+                    scoreLetter(square, c, anchor, Board.Direction.ACROSS, 1);
+                    extendRight(newNode, nextSquare);
+                    scoreLetter(square, c, anchor, Board.Direction.ACROSS, -1);
+                    pop();
+                    hand.add(c);
+                }
+                if(hand.hasBlank()) {
+                    hand.take(Rack.BLANK);
+                    int newNode = lexicon.getChild(node, c);
+                    int nextSquare = square + 1;
+                    push(Character.toUpperCase(c));
+                    scoreLetter(square, Character.toUpperCase(c), anchor, Board.Direction.ACROSS, 1);
+                    extendRight(newNode, nextSquare);
+                    scoreLetter(square, Character.toUpperCase(c), anchor, Board.Direction.ACROSS, -1);
+                    pop();
+                    hand.add(Rack.BLANK);
+                }
+            }
+        }
+        else {
+            char c = board.getLetter(square);
+            int newNode = lexicon.getChild(node, Character.toLowerCase(c));
+            if(newNode != Lexicon.NONE) {
+                int nextSquare = square + 1;
+                push(c);
+                scoreLetter(square, c, false, Board.Direction.ACROSS, 1);
+                extendRight(newNode, nextSquare);
+                scoreLetter(square, c, false, Board.Direction.ACROSS, -1);
+                pop();
+            }
+        }
+    }
+
+    /**
+     * Computes all possible "top parts" before a given anchor. For each
+     * of these top parts that we generate, attempt to extendDown to find
+     * complete words.
+     * @param node - node in the trie where we currently are
+     * @param lim - how much space we have to form the top part
+     * @param anchor - anchor square that we are forming the top part of
+     */
+    private void topPart(int node, int lim, int anchor) {
+        scorePrefix(Board.Direction.DOWN);
+        extendDown(node, anchor);
+        if(lim > 0) {
+            int candidates = lexicon.getChildMask(node) & hand.getMask();
+            while(candidates != 0) {
+                char c = (char)('a' + Integer.numberOfTrailingZeros(candidates));
+                candidates &= candidates - 1;
+                if(hand.contains(c)) {
+                    hand.take(c);
+                    currRow--;
+                    int newNode = lexicon.getChild(node, c);
+                    push(c);
+                    topPart(newNode, lim-1, anchor);
+                    pop();
+                    currRow++;
+                    hand.add(c);
+                }
+                if(hand.hasBlank()) {
+                    hand.take(Rack.BLANK);
+                    currRow--;
+                    int newNode = lexicon.getChild(node, c);
+                    push(Character.toUpperCase(c));
+                    topPart(newNode, lim-1, anchor);
+                    pop();
+                    currRow++;
+                    hand.add(Rack.BLANK);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find all valid permutations of a given top part in the downwards direction,
+     * calls checkWord for every valid permutation found. This is the same
+     * backtracking algorithm that was described in the "worlds fastest scrabble
+     * program" paper, just the extendDown version instead of extendRight.
+     * @param node - node in the trie where we currently are
+     * @param square - square on the board where we currently are
+     */
+    private void extendDown(int node, int square) {
+        //if off the board, stop extending
+        if(board.isBorder(square)) {
+            if(lexicon.isTerminal(node)) checkWord(currRow, currCol, Board.Direction.DOWN);
+            return;
+        }
+        //if square is empty, start placing valid characters and doing
+        //recursive backtrack
+        if(board.isEmpty(square)) {
+            if(lexicon.isTerminal(node)) checkWord(currRow, currCol, Board.Direction.DOWN);
+            if(prune(anchorIndex + (square - origin) / board.getStride(), false)) return;
+            boolean anchor = anchors.isAnchor(square);
+            int candidates = lexicon.getChildMask(node) & hand.getMask();
+            if(anchor) candidates &= anchors.getHCheckMask(square);
+            while(candidates != 0) {
+                char c = (char)('a' + Integer.numberOfTrailingZeros(candidates));
+                candidates &= candidates - 1;
+                //If we have in our hand a valid character, backtrack
+                if(hand.contains(c)) {
+                    hand.take(c);
+                    int newNode = lexicon.getChild(node, c);
+                    int nextSquare = square + board.getStride();
+                    push(c);
+                    scoreLetter(square, c, anchor, Board.Direction.DOWN, 1);
+                    extendDown(newNode, nextSquare);
+                    scoreLetter(square, c, anchor, Board.Direction.DOWN, -1);
+                    pop();
+                    hand.add(c);
+                }
+                //If we have a blank in our hand, backtrack for each valid character
+                if(hand.hasBlank()) {
+                    hand.take(Rack.BLANK);
+                    int newNode = lexicon.getChild(node, c);
+                    int nextSquare = square + board.getStride();
+                    push(Character.toUpperCase(c));
+                    scoreLetter(square, Character.toUpperCase(c), anchor, Board.Direction.DOWN, 1);
+                    extendDown(newNode, nextSquare);
+                    scoreLetter(square, Character.toUpperCase(c), anchor, Board.Direction.DOWN, -1);
+                    pop();
+                    hand.add(Rack.BLANK);
+                }
+            }
+        }
+        //If the current square already has something, keep going
+        else {
+            char c = board.getLetter(square);
+            int newNode = lexicon.getChild(node, Character.toLowerCase(c));
+            if(newNode != Lexicon.NONE) {
+                int nextSquare = square + board.getStride();
+                push(c);
+                scoreLetter(square, c, false, Board.Direction.DOWN, 1);
+                extendDown(newNode, nextSquare);
+                scoreLetter(square, c, false, Board.Direction.DOWN, -1);
+                pop();
+            }
+        }
+    }
+
+
+    /**
+     * @param pos - offset from the current anchor along the line
+     * @return - square at that offset, a border square if off the board
+     */
+    private int lineSquare(int pos) {
+        return origin + pos * step;
+    }
+
+    /**
+     * GADDAG move generation for one square. Uses the letter already on the
+     * square, or tries every letter from the hand that fits the cross checks.
+     * Offsets at or before the anchor (pos <= 0) are filled going left,
+     * offsets after it going right. When going left we stop at any other
+     * anchor square, moves covering it are generated from that anchor.
+     * @param pos - offset of the square from the anchor
+     * @param start - offset of the leftmost (topmost) letter so far
+     * @param node - node in the GADDAG where we currently are
+     * @param direction - direction in which the word is being built
+     */
+    private void gen(int pos, int start, int node, Board.Direction direction) {
+        int square = lineSquare(pos);
+        if(!board.isEmpty(square)) {
+            char c = board.getLetter(square);
+            int newNode = gaddag.getChild(node, Character.toLowerCase(c));
+            if(newNode != Lexicon.NONE) {
+                scoreLetter(square, c, false, direction, 1);
+                goOn(pos, start, c, newNode, direction);
+                scoreLetter(square, c, false, direction, -1);
+            }
+            return;
+        }
+        boolean anchor = anchors.isAnchor(square);
+        if(pos < 0 && anchor) return;
+        if(prune(anchorIndex + pos, pos <= 0)) return;
+
+        int candidates = gaddag.getChildMask(node) & hand.getMask();
+        if(anchor) {
+            candidates &= direction == Board.Direction.ACROSS ? anchors.getVCheckMask(square) : anchors.getHCheckMask(square);
+        }
+        while(candidates != 0) {
+            char c = (char)('a' + Integer.numberOfTrailingZeros(candidates));
+            candidates &= candidates - 1;
+            if(hand.contains(c)) {
+                hand.take(c);
+                scoreLetter(square, c, anchor, direction, 1);
+                goOn(pos, start, c, gaddag.getChild(node, c), direction);
+                scoreLetter(square, c, anchor, direction, -1);
+                hand.add(c);
+            }
+            if(hand.hasBlank()) {
+                hand.take(Rack.BLANK);
+                char blank = Character.toUpperCase(c);
+                scoreLetter(square, blank, anchor, direction, 1);
+                goOn(pos, start, blank, gaddag.getChild(node, c), direction);
+                scoreLetter(square, blank, anchor, direction, -1);
+                hand.add(Rack.BLANK);
+            }
+        }
+    }
+
+    /**
+     * Adds a letter to the word being built by the GADDAG search, records
+     * the word if it is complete and keeps going left, switches to the right
+     * through the separator, or keeps going right.
+     * @param pos - offset of the square the letter went on
+     * @param start - offset of the leftmost (topmost) letter before this one
+     * @param c - letter that went on the square
+     * @param node - node in the GADDAG after taking the letter
+     * @param direction - direction in which the word is being built
+     */
+    private void goOn(int pos, int start, char c, int node, Board.Direction direction) {
+        if(pos <= 0) {
+            word[--wordStart] = c;
+            int before = lineSquare(pos - 1);
+            int after = lineSquare(1);
+            boolean beforeFree = !board.hasTile(before);
+            boolean afterFree = !board.hasTile(after);
+            if(gaddag.isTerminal(node) && beforeFree && afterFree) checkGaddagWord(pos, direction);
+            if(!board.isBorder(before)) gen(pos - 1, pos, node, direction);
+            int separator = gaddag.getChild(node, TrieNode.SEPARATOR);
+            if(separator != Lexicon.NONE && beforeFree && !board.isBorder(after)) gen(1, pos, separator, direction);
+            wordStart++;
+        }
+        else {
+            push(c);
+            int after = lineSquare(pos + 1);
+            if(gaddag.isTerminal(node) && !board.hasTile(after)) {
+                checkGaddagWord(start, direction);
+            }
+            if(!board.isBorder(after)) gen(pos + 1, start, node, direction);
+            pop();
+        }
+    }
+
+    /**
+     * checkWord for a word found by the GADDAG search
+     * @param start - offset of its first letter from the current anchor
+     * @param direction - direction in which the word was placed
+     */
+    private void checkGaddagWord(int start, Board.Direction direction) {
+        if(direction == Board.Direction.ACROSS) checkWord(currRow, currCol + start, direction);
+        else checkWord(currRow + start, currCol, direction);
+    }
+
+    /**
+     * Reads the squares of the line through the anchor being searched, in
+     * the direction of the search, into the line arrays
+     * @param direction - direction of the line
+     */
+    private void measureLine(Board.Direction direction) {
+        anchorIndex = direction == Board.Direction.ACROSS ? currCol : currRow;
+        int square = origin - anchorIndex * step;
+        for(int i = 0; i < lineScores.length; i++, square += step) {
+            if(!board.isEmpty(square)) {
+                lineScores[i] = board.getScore(square);
+                continue;
+            }
+            lineScores[i] = -1;
+            lineCharMultipliers[i] = board.getCharMultiplier(square);
+            lineWordMultipliers[i] = board.getWordMultiplier(square);
+            lineAnchors[i] = anchors.isAnchor(square);
+            int crossSum = !lineAnchors[i] ? -1
+                    : direction == Board.Direction.ACROSS ? anchors.getVCrossSum(square) : anchors.getHCrossSum(square);
+            lineCrossLetters[i] = crossSum < 0 ? 0 : lineCharMultipliers[i] * lineWordMultipliers[i];
+            lineCrossSums[i] = crossSum < 0 ? 0 : crossSum * lineWordMultipliers[i];
+        }
+        Arrays.fill(windowMost[0], -1);
+        Arrays.fill(windowMost[1], -1);
+    }
+
+    /**
+     * Decides if nothing the search can still reach from where it is can
+     * beat the best move found so far. The new tiles of a move fill the
+     * empty squares of the line in order from where the search is, so for
+     * k more tiles the squares they take, the tiles on the board the word
+     * has to join and the word multipliers are known. The tiles left in the
+     * hand go on those squares biggest first onto the biggest letter
+     * multipliers, each square adds its own cross word, and the bingo
+     * bonus counts when the hand is emptied. More tiles never make the
+     * bound smaller, so only the most tiles that fit are tried. While the
+     * GADDAG search is still going left the tiles can also go right of the
+     * anchor, so every split of them between the two sides is tried.
+     * @param index - index on the line of the square the search is at
+     * @param left - whether the search is going left (up) from the anchor
+     * @return - true if the branch can be cut off
+     */
+    private boolean prune(int index, boolean left) {
+        if(!pruning || sink != null || bestEquity == Float.NEGATIVE_INFINITY) return false;
+        float needed = bestEquity - maxLeave;
+        int tiles = hand.size();
+        hand.getValues(rackValues);
+        if(!left) return bound(-1, 0, index, Math.min(window(0, index), tiles), tiles) < needed;
+        int right = anchorIndex + 1;
+        int rightMost = window(0, right);
+        int leftMost = Math.min(window(1, index), tiles);
+        for(int kLeft = 0; kLeft <= leftMost; kLeft++) {
+            if(bound(index, kLeft, right, Math.min(rightMost, tiles - kLeft), tiles) >= needed) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param left - index of the square the tiles going left (up) start
+     *             from, -1 if none do
+     * @param kLeft - new tiles going left
+     * @param right - index of the square the tiles going right (down)
+     *              start from
+     * @param kRight - new tiles going right
+     * @param tiles - tiles left in the hand
+     * @return - most points a move can make with that many more tiles on
+     * each side, see prune
+     */
+    private int bound(int left, int kLeft, int right, int kRight, int tiles) {
+        int slots = handSize + 1;
+        int rightSlot = right * slots + kRight;
+        int filled = mainScore + windowFilled[0][rightSlot];
+        int multiplier = wordMultiplier * windowMultipliers[0][rightSlot];
+        int cross = crossScore + windowCross[0][rightSlot];
+        int leftSlot = 0;
+        if(left >= 0) {
+            leftSlot = left * slots + kLeft;
+            filled += windowFilled[1][leftSlot];
+            multiplier *= windowMultipliers[1][leftSlot];
+            cross += windowCross[1][leftSlot];
+        }
+        int k = kLeft + kRight;
+        int letters = dot(windowChar[1], leftSlot * handSize, kLeft, windowChar[0], rightSlot * handSize, kRight);
+        int crossLetters = dot(windowCrossLetters[1], leftSlot * handSize, kLeft,
+                windowCrossLetters[0], rightSlot * handSize, kRight);
+        int bound = (filled + letters) * multiplier + cross + crossLetters;
+        return k == tiles ? bound + 50 : bound;
+    }
+
+    /**
+     * Merges two lists kept biggest first and multiplies them with the
+     * points of the tiles left, biggest with biggest
+     * @return - the sum of the products
+     */
+    private int dot(int[] a, int aStart, int aLength, int[] b, int bStart, int bLength) {
+        int sum = 0;
+        int i = 0;
+        int j = 0;
+        for(int n = 0; n < aLength + bLength; n++) {
+            int value;
+            if(j == bLength || (i < aLength && a[aStart + i] >= b[bStart + j])) value = a[aStart + i++];
+            else value = b[bStart + j++];
+            sum += rackValues[n] * value;
+        }
+        return sum;
+    }
+
+    /**
+     * Works out what the squares a move can still take from a square add
+     * up to, for every number of new tiles up to the size of the hand. The
+     * tiles right after each empty square taken have to join the word too.
+     * Going left, an anchor before the current one can't be taken, moves
+     * through it are made from that anchor.
+     * @param w - 0 to go right (down), 1 to go left (up)
+     * @param index - index on the line of the first square
+     * @return - most new tiles that fit
+     */
+    private int window(int w, int index) {
+        if(windowMost[w][index] >= 0) return windowMost[w][index];
+        int direction = w == 0 ? 1 : -1;
+        int slot = index * (handSize + 1);
+        int[] filled = windowFilled[w];
+        filled[slot] = 0;
+        windowMultipliers[w][slot] = 1;
+        windowCross[w][slot] = 0;
+        int k = 0;
+        int i = index;
+        while(true) {
+            while(i >= 0 && i < lineScores.length && lineScores[i] >= 0) {
+                filled[slot + k] += lineScores[i];
+                i += direction;
+            }
+            if(k == handSize || i < 0 || i >= lineScores.length) break;
+            if(w == 1 && i < anchorIndex && lineAnchors[i]) break;
+            insert(sortedChar, k, lineCharMultipliers[i]);
+            insert(sortedCross, k, lineCrossLetters[i]);
+            k++;
+            System.arraycopy(sortedChar, 0, windowChar[w], (slot + k) * handSize, k);
+            System.arraycopy(sortedCross, 0, windowCrossLetters[w], (slot + k) * handSize, k);
+            filled[slot + k] = filled[slot + k - 1];
+            windowMultipliers[w][slot + k] = windowMultipliers[w][slot + k - 1] * lineWordMultipliers[i];
+            windowCross[w][slot + k] = windowCross[w][slot + k - 1] + lineCrossSums[i];
+            i += direction;
+        }
+        windowMost[w][index] = k;
+        return k;
+    }
+
+    /**
+     * Puts a value into the first n+1 places of an array kept biggest first
+     */
+    private static void insert(int[] sorted, int n, int value) {
+        int i = n;
+        for(; i > 0 && sorted[i - 1] < value; i--) sorted[i] = sorted[i - 1];
+        sorted[i] = value;
+    }
+
+    /**
+     * Add a letter to the end of the word being built
+     * @param c - letter to add
+     */
+    private void push(char c) {
+        word[wordEnd++] = c;
+    }
+
+    /**
+     * Take the last letter back off the word being built
+     */
+    private void pop() {
+        wordEnd--;
+    }
+
+    /**
+     * Sets the running score to the points of the letters already in the
+     * word buffer, which start at the current row and column. Used once a
+     * left (top) part is finished, since until then it is not known which
+     * squares its letters end up on.
+     * @param direction - direction in which the word is being built
+     */
+    private void scorePrefix(Board.Direction direction) {
+        mainScore = 0;
+        wordMultiplier = 1;
+        crossScore = 0;
+        anchorTiles = 0;
+        crossWords = 0;
+        int square = board.square(currRow, currCol);
+        for(int i = wordStart; i < wordEnd; i++, square += step) {
+            scoreLetter(square, word[i], false, direction, 1);
+        }
+    }
+
+    /**
+     * Adds a letter of the word to the running score, or takes it back off.
+     * A letter already on the board counts its points only. A new letter
+     * counts its points times the letter multiplier of the square, adds the
+     * word multiplier of the square, and if the square is an anchor with a
+     * cross word also counts that cross word using the points precomputed
+     * for the anchor. The square itself is never written to.
+     * @param square - square the letter goes on
+     * @param c - the letter, uppercase for a blank
+     * @param anchor - whether the square is an anchor
+     * @param direction - direction in which the word is being built
+     * @param sign - 1 to add the letter, -1 to take it back off
+     */
+    private void scoreLetter(int square, char c, boolean anchor, Board.Direction direction, int sign) {
+        if(!board.isEmpty(square)) {
+            mainScore += sign * board.getScore(square);
+            return;
+        }
+        int value = BoardTile.getLetterScore(c) * board.getCharMultiplier(square);
+        int multiplier = board.getWordMultiplier(square);
+        mainScore += sign * value;
+        if(sign > 0) wordMultiplier *= multiplier;
+        else wordMultiplier /= multiplier;
+        if(!anchor) return;
+        anchorTiles += sign;
+        int crossSum = direction == Board.Direction.ACROSS ? anchors.getVCrossSum(square) : anchors.getHCrossSum(square);
+        if(crossSum >= 0) {
+            crossScore += sign * (crossSum + value) * multiplier;
+            crossWords += sign;
+        }
+    }
+
+    /**
+     * Checks a move that the extendRight algorithm computed to make sure
+     * it goes through an anchor, then updates the information about where
+     * the best move was made if this move is better than all the others.
+     * The search only gets here with words from the lexicon that fit the
+     * cross checks, and it has been adding up the score of the word while
+     * building it, so the board is not looked at. The word is the one in
+     * the word buffer, a String is only made for it when it becomes the
+     * best move.
+     * @param startRow - row of the first letter of the word
+     * @param startCol - column of the first letter of the word
+     * @param direction - direction in which word was placed
+     */
+    private void checkWord(int startRow, int startCol, Board.Direction direction) {
+        if(anchorTiles == 0) return;
+        int score = mainScore * wordMultiplier + crossScore;
+        //Update best move stats if necessary
+        if(hand.isEmpty()) score += 50;
+        if(sink != null && isOtherWay(startRow, startCol, direction)) return;
+        float equity = leaves == null ? score : score + leaves.get(hand);
+        if(sink != null) {
+            sink.accept(word, wordStart, wordEnd - wordStart, startRow, startCol, direction, score, equity);
+            return;
+        }
+        if(isBetter(equity, startRow, startCol, direction)) {
+            bestRow = startRow;
+            bestCol = startCol;
+            bestWord = new String(word, wordStart, wordEnd - wordStart);
+            bestDirection = direction;
+            bestScore = score;
+            bestEquity = equity;
+        }
+    }
+
+    /**
+     * A play of a single tile that makes a word both ways is found once
+     * across and once down. isBetter picks the down word when it starts
+     * above the tile and the across word otherwise, so the sink gets that
+     * one too.
+     * @param startRow - row of the first letter of the word
+     * @param startCol - column of the first letter of the word
+     * @param direction - direction in which the word is placed
+     * @return - true if the move is such a play and this is the word of it
+     * that isBetter would not pick
+     */
+    private boolean isOtherWay(int startRow, int startCol, Board.Direction direction) {
+        if(crossWords != 1 || handSize - hand.size() != 1) return false;
+        int square = board.square(startRow, startCol);
+        if(direction == Board.Direction.DOWN) return !board.hasTile(square);
+        while(board.hasTile(square)) square++;
+        return board.hasTile(square - board.getStride());
+    }
+
+    /**
+     * Decides if a move beats the best one found so far. Moves are compared
+     * by equity, which is just the score unless there is a leave table.
+     * Ties go to the move that comes first by row, column, direction
+     * (across first) and then word, so that the result does not depend on
+     * the order the anchors or the engines visit moves in. The word of the
+     * move is the one in the word buffer.
+     * @return - true if the move should become the best move
+     */
+    private boolean isBetter(float equity, int row, int col, Board.Direction direction) {
+        if(equity != bestEquity) return equity > bestEquity;
+        if(bestWord.isEmpty()) return false;
+        if(row != bestRow) return row < bestRow;
+        if(col != bestCol) return col < bestCol;
+        if(direction != bestDirection) return direction == Board.Direction.ACROSS;
+        int length = wordEnd - wordStart;
+        for(int i = 0; i < length && i < bestWord.length(); i++) {
+            char c = word[wordStart + i];
+            if(c != bestWord.charAt(i)) return c < bestWord.charAt(i);
+        }
+        return length < bestWord.length();
+    }
+
+}
@@ -0,0 +1,243 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Lexicon stored as a flat array of ints, two per node. The first int holds
+ * the child mask of the node with the top bit set for terminal nodes, the
+ * second holds the index of the node's first child. The children of a node
+ * are stored next to each other in letter order, so a child is found by
+ * counting the set bits of the mask below its letter. A node whose children
+ * are shared with other nodes (word graphs, GADDAGs) points at the same
+ * block of children as they do.
+ * The array can be written to a binary image file and memory mapped back
+ * in, the lexicon is then walked right inside the mapped file without
+ * building any objects and processes using the same image share its pages.
+ * A packed lexicon can also be copied into native memory (offHeap), then
+ * the garbage collector never has to look at it and the heap size does
+ * not depend on the size of the dictionary.
+ * Image layout (big endian ints): magic, version, section count, and then
+ * for every section its kind, its node count, its root and its nodes.
+ */
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PackedLexicon implements Lexicon {
+    /**
+     * Section kinds in an image file
+     */
+    public static final int TRIE = 0;
+    public static final int GADDAG = 1;
+
+    private static final int MAGIC = 0x5343524C; //"SCRL"
+    private static final int VERSION = 2;
+    private static final int TERMINAL = 1 << 31;
+    private static final AtomicLong versions = new AtomicLong();
+
+    private final IntBuffer nodes;
+    private final int root;
+    private final long version;
+
+    PackedLexicon(IntBuffer nodes, int root) {
+        this.nodes = nodes;
+        this.root = root;
+        version = versions.incrementAndGet();
+    }
+
+    /**
+     * Packs a trie, word graph or GADDAG made by TrieFileParser
+     * @param root - root of the graph
+     * @return - packed copy of the graph
+     */
+    public static PackedLexicon pack(TrieNode root) {
+        IdentityHashMap<TrieNode, Integer> blocks = new IdentityHashMap<>();
+        ArrayDeque<TrieNode> pending = new ArrayDeque<>();
+        int[] data = new int[1024];
+        int next = 1; //slot 0 is the root
+
+        data[0] = nodeWord(root);
+        data[1] = 0;
+        if(root.getChildren().length > 0) {
+            blocks.put(root, next);
+            data[1] = next;
+            next += root.getChildren().length;
+            pending.add(root);
+        }
+        while(!pending.isEmpty()) {
+            TrieNode node = pending.poll();
+            int slot = blocks.get(node);
+            for(TrieNode child : node.getChildren()) {
+                int first = 0;
+                if(child.getChildren().length > 0) {
+                    Integer block = blocks.get(child);
+                    if(block == null) {
+                        block = next;
+                        next += child.getChildren().length;
+                        blocks.put(child, block);
+                        pending.add(child);
+                    }
+                    first = block;
+                }
+                if(2 * next > data.length) data = Arrays.copyOf(data, Math.max(2 * data.length, 2 * next));
+                data[2 * slot] = nodeWord(child);
+                data[2 * slot + 1] = first;
+                slot++;
+            }
+        }
+        return new PackedLexicon(IntBuffer.wrap(Arrays.copyOf(data, 2 * next)), 0);
+    }
+
+    /**
+     * @param node - node to make the first int of
+     * @return - child mask of the node with the terminal flag
+     */
+    private static int nodeWord(TrieNode node) {
+        return node.getChildMask() | (node.isTerminalNode() ? TERMINAL : 0);
+    }
+
+    /**
+     * Writes lexicons into a binary image file
+     * @param fileName - file to write
+     * @param trie - the trie or word graph to write
+     * @param gaddag - GADDAG of the same dictionary, null to leave it out
+     */
+    public static void write(String fileName, PackedLexicon trie, PackedLexicon gaddag) throws IOException {
+        PackedLexicon[] sections = gaddag == null
+                ? new PackedLexicon[]{trie} : new PackedLexicon[]{trie, gaddag};
+        int size = 12;
+        for(PackedLexicon section : sections) size += 12 + 4 * section.nodes.limit();
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(sections.length);
+        for(int i = 0; i < sections.length; i++) {
+            IntBuffer nodes = sections[i].nodes.duplicate();
+            nodes.rewind();
+            buffer.putInt(i == 0 ? TRIE : GADDAG).putInt(nodes.limit() / 2).putInt(sections[i].root);
+            buffer.asIntBuffer().put(nodes);
+            buffer.position(buffer.position() + 4 * nodes.limit());
+        }
+        buffer.flip();
+        try(FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while(buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * @param fileName - file to look at
+     * @return - true if the file is a lexicon image, false if it is
+     * something else (like a text dictionary) or can't be read
+     */
+    public static boolean isImage(String fileName) {
+        try(RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+            return file.length() >= 12 && file.readInt() == MAGIC;
+        }
+        catch(IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Memory maps one section of a lexicon image
+     * @param fileName - image file made by write
+     * @param kind - TRIE or GADDAG
+     * @return - lexicon reading straight from the mapped file, null if the
+     * image does not have that section
+     * @throws IOException - if the file can't be read or is not an image
+     */
+    public static PackedLexicon load(String fileName, int kind) throws IOException {
+        ByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if(buffer.limit() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException(fileName + " is not a lexicon image");
+        }
+        int sections = buffer.getInt();
+        for(int i = 0; i < sections; i++) {
+            //a truncated or corrupt image must not send the reads past the end
+            if(buffer.remaining() < 12) throw new IOException(fileName + " is not a lexicon image");
+            int sectionKind = buffer.getInt();
+            long ints = 2L * buffer.getInt();
+            int sectionRoot = buffer.getInt();
+            if(ints < 0 || 4L * ints > buffer.remaining()) throw new IOException(fileName + " is not a lexicon image");
+            if(sectionKind == kind) {
+                ByteBuffer slice = buffer.slice();
+                slice.limit((int)(4 * ints));
+                return new PackedLexicon(slice.asIntBuffer(), sectionRoot);
+            }
+            buffer.position(buffer.position() + (int)(4 * ints));
+        }
+        return null;
+    }
+
+    /**
+     * Copies the lexicon into a direct buffer outside of the Java heap. The
+     * copy is walked exactly like the original, node handles are offsets
+     * into the buffer.
+     * @return - off heap copy of the lexicon
+     */
+    public PackedLexicon offHeap() {
+        IntBuffer source = nodes.duplicate();
+        source.rewind();
+        IntBuffer copy = ByteBuffer.allocateDirect(4 * source.limit())
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        copy.put(source);
+        return new PackedLexicon(copy, root);
+    }
+
+    /**
+     * @return - copy of the node array, two ints per node
+     */
+    int[] toArray() {
+        int[] array = new int[nodes.limit()];
+        nodes.get(0, array);
+        return array;
+    }
+
+    /**
+     * @return - how many nodes the packed graph has
+     */
+    public int getNodeCount() {
+        return nodes.limit() / 2;
+    }
+
+    @Override
+    public int getRoot() {
+        return root;
+    }
+
+    @Override
+    public int getChild(int node, char c) {
+        int index = TrieNode.indexOf(c);
+        if(index < 0) return NONE;
+        int bit = 1 << index;
+        int mask = nodes.get(2 * node);
+        if((mask & bit) == 0) return NONE;
+        return nodes.get(2 * node + 1) + Integer.bitCount(mask & (bit - 1));
+    }
+
+    @Override
+    public int getChildMask(int node) {
+        return nodes.get(2 * node) & ~TERMINAL;
+    }
+
+    @Override
+    public boolean isTerminal(int node) {
+        return (nodes.get(2 * node) & TERMINAL) != 0;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+}
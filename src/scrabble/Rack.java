@@ -0,0 +1,235 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * The tiles a player is holding. Instead of a list of characters it keeps
+ * how many of each letter there are plus how many blanks, so checking for,
+ * taking and giving back a tile are all constant time, which matters since
+ * the move search does all three at every step. Also keeps a bitmask of the
+ * letters it has for intersecting with the lexicon's child masks.
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class Rack implements Iterable<Character> {
+    public static final char BLANK = '*';
+
+    private final int[] counts;
+    private int blanks;
+    private int size;
+    private int mask; //bit i is set when there is at least one 'a'+i
+    private int points; //what the tiles are worth together
+    private long hash; //Zobrist hash of the tiles, see getHash
+    private final int[] pointCounts; //how many tiles are worth i points, blanks at 0
+
+    public Rack() {
+        counts = new int[26];
+        pointCounts = new int[11];
+    }
+
+    /**
+     * @param other - rack to copy the tiles of
+     */
+    public Rack(Rack other) {
+        counts = other.counts.clone();
+        blanks = other.blanks;
+        size = other.size;
+        mask = other.mask;
+        points = other.points;
+        hash = other.hash;
+        pointCounts = other.pointCounts.clone();
+    }
+
+    /**
+     * Add a tile to the rack, characters other than a lowercase letter or
+     * the blank are ignored
+     * @param c - tile to add
+     */
+    public void add(char c) {
+        if(c == BLANK) {
+            hash ^= tileKey(26, ++blanks);
+            pointCounts[0]++;
+        }
+        else {
+            int index = TrieNode.indexOf(c);
+            if(index < 0 || index >= 26) return;
+            hash ^= tileKey(index, ++counts[index]);
+            mask |= 1 << index;
+            points += BoardTile.getLetterScore(c);
+            pointCounts[BoardTile.getLetterScore(c)]++;
+        }
+        size++;
+    }
+
+    /**
+     * Take a tile out of the rack
+     * @param c - tile to take
+     * @return - true if the tile was there, false otherwise
+     */
+    public boolean take(char c) {
+        if(c == BLANK) {
+            if(blanks == 0) return false;
+            hash ^= tileKey(26, blanks--);
+            pointCounts[0]--;
+        }
+        else {
+            int index = TrieNode.indexOf(c);
+            if(index < 0 || index >= 26 || counts[index] == 0) return false;
+            hash ^= tileKey(index, counts[index]);
+            if(--counts[index] == 0) mask &= ~(1 << index);
+            points -= BoardTile.getLetterScore(c);
+            pointCounts[BoardTile.getLetterScore(c)]--;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @param c - tile to look for
+     * @return - true if the rack has at least one of that tile
+     */
+    public boolean contains(char c) {
+        if(c == BLANK) return blanks > 0;
+        int index = TrieNode.indexOf(c);
+        return index >= 0 && index < 26 && counts[index] > 0;
+    }
+
+    /**
+     * @return - true if there is a blank in the rack
+     */
+    public boolean hasBlank() {
+        return blanks > 0;
+    }
+
+    /**
+     * @param c - letter to count
+     * @return - how many of that letter are in the rack
+     */
+    public int count(char c) {
+        if(c == BLANK) return blanks;
+        int index = TrieNode.indexOf(c);
+        return index >= 0 && index < 26 ? counts[index] : 0;
+    }
+
+    /**
+     * @return - bitmask of the letters that can be played from the rack,
+     * bit i is set for 'a'+i. Every letter can be played if there is a blank.
+     */
+    public int getMask() {
+        return blanks > 0 ? Lexicon.ALL_LETTERS : mask;
+    }
+
+    /**
+     * @return - how many points the tiles in the rack are worth together,
+     * before multipliers
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * @param values - where to put the points of every tile, biggest
+     *               first, blanks as 0. Must fit the whole rack.
+     */
+    public void getValues(int[] values) {
+        int n = 0;
+        for(int value = pointCounts.length - 1; value >= 0; value--) {
+            for(int j = pointCounts[value]; j > 0; j--) values[n++] = value;
+        }
+    }
+
+    /**
+     * @return - the tiles packed into a leave key, see LeaveTable
+     */
+    public long getLeaveKey() {
+        long key = 1;
+        for(int i = 0; i < 26; i++) {
+            for(int j = 0; j < counts[i]; j++) key = (key << 5) | (i + 1);
+        }
+        for(int j = 0; j < blanks; j++) key = (key << 5) | 27;
+        return key;
+    }
+
+    /**
+     * A 64-bit Zobrist hash of the tiles, kept up to date with a xor per
+     * tile added or taken. Racks with the same tiles in any order hash the
+     * same, see Board.getHash.
+     * @return - the hash, 0 for an empty rack
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @param index - letter of the tile, 'a'+index, 26 for a blank
+     * @param copy - which one of that tile it is, 1 for the first
+     * @return - Zobrist key of the tile
+     */
+    private static long tileKey(int index, int copy) {
+        return Zobrist.key(1L << 41 | index << 8 | copy);
+    }
+
+    /**
+     * @return - how many tiles are in the rack
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return - true if there are no tiles in the rack
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Take every tile out of the rack
+     */
+    public void clear() {
+        for(int i = 0; i < 26; i++) counts[i] = 0;
+        blanks = 0;
+        size = 0;
+        mask = 0;
+        points = 0;
+        hash = 0;
+        for(int i = 0; i < pointCounts.length; i++) pointCounts[i] = 0;
+    }
+
+    /**
+     * Goes over the tiles in alphabetical order, blanks last
+     */
+    @Override
+    public Iterator<Character> iterator() {
+        return new Iterator<Character>() {
+            private int letter = 0;
+            private int left = counts[0];
+            private int returned = 0;
+
+            @Override
+            public boolean hasNext() {
+                return returned < size;
+            }
+
+            @Override
+            public Character next() {
+                if(!hasNext()) throw new NoSuchElementException();
+                while(letter < 26 && left == 0) {
+                    letter++;
+                    left = letter < 26 ? counts[letter] : blanks;
+                }
+                left--;
+                returned++;
+                return letter < 26 ? (char)('a' + letter) : BLANK;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder(size);
+        for(char c : this) string.append(c);
+        return string.toString();
+    }
+}
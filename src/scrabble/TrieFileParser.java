@@ -2,48 +2,235 @@ package scrabble; /**
  * Andrew Geyko
  * This class reads in a dictionary file and makes a Trie
  * from it, constructor throws an exception if the file was not found
- * and the only open method, makeTree, returns the root of the trie.
+ * and the open methods, makeTree, makeDawg and makeGaddag, return the root
+ * of the trie.
+ * The file is read as raw bytes through a buffer, one word per line (ASCII,
+ * LF or CRLF line endings, blank lines are skipped), so no String is made
+ * for the lines of the dictionary. Spaces or other whitespace end a word,
+ * so a line with several words on it gives each of them.
  */
 
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Scanner;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 public class TrieFileParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+
     private TrieNode root;
     private String fileName;
-    private Scanner sc;
+    private InputStream stream;
+    private byte[] buffer;
+    private int bufferPos;
+    private int bufferEnd;
+    private char[] word; //word read by the last call to nextWord
+    private int wordLength;
+    private boolean parallel;
+    private long buildTime;
 
     public TrieFileParser(String fileName) throws FileNotFoundException {
+        this(new FileInputStream(fileName));
         this.fileName = fileName;
-        FileReader file = new FileReader(fileName);
-        sc  = new Scanner(file);
-        root = new TrieNode('\0');
     }
 
     public TrieFileParser(InputStream stream) {
         this.fileName = "";
-        sc = new Scanner(stream);
+        this.stream = stream;
+        buffer = new byte[BUFFER_SIZE];
+        word = new char[32];
         root = new TrieNode('\0');
     }
+
+    /**
+     * @param parallel - whether makeTree and makeDawg should build the
+     *                 subtrees under each first letter at the same time
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return - wall clock time in milliseconds the last make method took,
+     * reading the file included
+     */
+    public long getBuildTime() {
+        return buildTime;
+    }
+
     /**
      * Makes a complete Trie from the given dictionary
      * @return - root of the trie
      */
     public TrieNode makeTree() {
-        while(sc.hasNextLine()) {
-            TrieNode currNode = root;
-            String line = sc.nextLine();
-            for(int i = 0; i < line.length(); i++) {
-                char toAdd = Character.toLowerCase(line.charAt(i));
-                currNode = addNode(currNode, toAdd);
+        long start = System.nanoTime();
+        if(parallel) buildParallel(null);
+        else {
+            while(nextWord()) {
+                TrieNode currNode = root;
+                for(int i = 0; i < wordLength; i++) {
+                    currNode = addNode(currNode, word[i]);
+                }
+                currNode.setTerminalNode(true);
+            }
+        }
+        buildTime = (System.nanoTime() - start) / 1000000;
+        return root;
+    }
+
+    /**
+     * Makes the Trie from the given dictionary and then merges every set of
+     * equivalent subtrees into one, giving a directed acyclic word graph.
+     * Shared suffixes (-ing, -ed, -s...) end up being stored only once.
+     * Nodes in the result can have several parents, so the graph must
+     * not be modified after it is built.
+     * @return - root of the word graph
+     */
+    public TrieNode makeDawg() {
+        long start = System.nanoTime();
+        if(parallel) buildParallel(new ConcurrentHashMap<>());
+        else {
+            makeTree();
+            minimize(root, new HashMap<>());
+        }
+        buildTime = (System.nanoTime() - start) / 1000000;
+        return root;
+    }
+
+    /**
+     * Parallel version of makeTree (and makeDawg). The words are read and
+     * split up by first letter, then the subtrees under the root are built
+     * as separate fork/join tasks since they share nothing, and attached to
+     * the root once they are all done.
+     * @param registry - unique nodes shared by the tasks when making a word
+     *                 graph, null to leave the subtrees as plain tries
+     */
+    private void buildParallel(Map<Signature, TrieNode> registry) {
+        WordList[] lists = new WordList[26];
+        for(int i = 0; i < 26; i++) lists[i] = new WordList();
+        while(nextWord()) {
+            int index = TrieNode.indexOf(word[0]);
+            if(index >= 0) lists[index].add(word, wordLength);
+        }
+
+        ArrayList<SubtreeTask> tasks = new ArrayList<>();
+        for(int i = 0; i < 26; i++) {
+            if(lists[i].count > 0) tasks.add(new SubtreeTask((char)('a' + i), lists[i], registry));
+        }
+        for(SubtreeTask task : ForkJoinTask.invokeAll(tasks)) {
+            root.addChild(task.join());
+        }
+    }
+
+    /**
+     * Makes a GADDAG from the given dictionary. For every word and every
+     * split point, the letters before the split are stored reversed, then
+     * the separator, then the letters after it (the separator is left out
+     * when the split is at the end of the word). So "care" is stored as
+     * c^are, ac^re, rac^e and erac. Paths are read outward from any letter
+     * of a word on the board, first going left and then going right.
+     * Equivalent subtrees are merged the same way makeDawg does, one first
+     * letter at a time so that the full tree is never held in memory.
+     * @return - root of the GADDAG
+     */
+    public TrieNode makeGaddag() {
+        long start = System.nanoTime();
+        WordList words = new WordList();
+        while(nextWord()) words.add(word, wordLength);
+
+        HashMap<Signature, TrieNode> registry = new HashMap<>();
+        for(char first = 'a'; first <= 'z'; first++) {
+            TrieNode subtree = new TrieNode(first);
+            int wordStart = 0;
+            for(int i = 0; i < words.count; i++) {
+                int wordEnd = words.ends[i];
+                for(int split = wordStart + 1; split <= wordEnd; split++) {
+                    if(words.chars[split - 1] == first) addGaddagPath(subtree, words.chars, wordStart, wordEnd, split);
+                }
+                wordStart = wordEnd;
+            }
+            if(subtree.getChildren().length > 0 || subtree.isTerminalNode()) {
+                root.addChild(minimize(subtree, registry));
             }
-            currNode.setTerminalNode(true);
         }
+        buildTime = (System.nanoTime() - start) / 1000000;
         return root;
     }
 
+    /**
+     * Adds the path for one split point of a word to the GADDAG
+     * @param subtree - node for the letter right before the split
+     * @param chars - array the word is stored in
+     * @param start - index of the first letter of the word
+     * @param end - index right after the last letter of the word
+     * @param split - index of the first letter after the split
+     */
+    private void addGaddagPath(TrieNode subtree, char[] chars, int start, int end, int split) {
+        TrieNode currNode = subtree;
+        for(int i = split - 2; i >= start; i--) currNode = addNode(currNode, chars[i]);
+        if(split < end) {
+            currNode = addNode(currNode, TrieNode.SEPARATOR);
+            for(int i = split; i < end; i++) currNode = addNode(currNode, chars[i]);
+        }
+        currNode.setTerminalNode(true);
+    }
+
+    /**
+     * Reads the next word of the dictionary into the word buffer, lowercased.
+     * A word ends at a space, a line break or any other control character,
+     * and runs of them between words are skipped.
+     * @return - true if a word was read, false at the end of the file
+     */
+    private boolean nextWord() {
+        wordLength = 0;
+        while(true) {
+            if(bufferPos == bufferEnd && !fillBuffer()) return wordLength > 0;
+            byte b = buffer[bufferPos++];
+            if(b < 0) continue; //not ASCII
+            if(b <= ' ') {
+                if(wordLength > 0) return true;
+                continue;
+            }
+            if(wordLength == word.length) word = Arrays.copyOf(word, 2 * word.length);
+            char c = (char)(b & 0xFF);
+            if(c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            word[wordLength++] = c;
+        }
+    }
+
+    /**
+     * Reads the next chunk of the file into the byte buffer, closing the
+     * file once it has all been read
+     * @return - false if there was nothing left to read
+     */
+    private boolean fillBuffer() {
+        if(stream == null) return false;
+        try {
+            int read = stream.read(buffer);
+            while(read == 0) read = stream.read(buffer);
+            if(read < 0) {
+                stream.close();
+                stream = null;
+                bufferPos = bufferEnd = 0;
+                return false;
+            }
+            bufferPos = 0;
+            bufferEnd = read;
+            return true;
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Helper method to put a new node into the trie
      * @param root - node to add character to
@@ -51,7 +238,7 @@ public class TrieFileParser {
      * @return - returns the node that was either added or if it was already
      * a child of the root, that node itself
      */
-    private TrieNode addNode(TrieNode root, Character data) {
+    private TrieNode addNode(TrieNode root, char data) {
         TrieNode node = root.getChild(data);
         if(node == null) {
             node = new TrieNode(data);
@@ -59,4 +246,111 @@ public class TrieFileParser {
         }
         return node;
     }
+
+    /**
+     * Bottom up pass replacing every node with the first equivalent node
+     * seen so far. Once the children of a node are unique, two nodes are
+     * equivalent exactly when they have the same data, the same terminal
+     * flag and the very same children.
+     * @param node - root of the subtree to minimize
+     * @param registry - unique nodes found so far
+     * @return - the node that should take the place of the given node
+     */
+    private TrieNode minimize(TrieNode node, Map<Signature, TrieNode> registry) {
+        for(TrieNode child : node.getChildren()) {
+            TrieNode unique = minimize(child, registry);
+            if(unique != child) node.addChild(unique);
+        }
+        Signature signature = new Signature(node);
+        TrieNode unique = registry.putIfAbsent(signature, node);
+        return unique == null ? node : unique;
+    }
+
+    /**
+     * Words that start with the same letter, stored back to back in one
+     * char array
+     */
+    private static class WordList {
+        private char[] chars = new char[1024];
+        private int[] ends = new int[128];
+        private int count;
+
+        void add(char[] word, int length) {
+            int start = count == 0 ? 0 : ends[count - 1];
+            if(start + length > chars.length) chars = Arrays.copyOf(chars, 2 * (start + length));
+            if(count == ends.length) ends = Arrays.copyOf(ends, 2 * count);
+            System.arraycopy(word, 0, chars, start, length);
+            ends[count++] = start + length;
+        }
+    }
+
+    /**
+     * Builds the subtree for one first letter, minimizing it if given a
+     * registry to share unique nodes through
+     */
+    private class SubtreeTask extends RecursiveTask<TrieNode> {
+        private static final long serialVersionUID = 1L;
+        private final char letter;
+        private final WordList words;
+        private final Map<Signature, TrieNode> registry;
+
+        SubtreeTask(char letter, WordList words, Map<Signature, TrieNode> registry) {
+            this.letter = letter;
+            this.words = words;
+            this.registry = registry;
+        }
+
+        @Override
+        protected TrieNode compute() {
+            TrieNode subtree = new TrieNode(letter);
+            int start = 0;
+            for(int i = 0; i < words.count; i++) {
+                TrieNode currNode = subtree;
+                for(int j = start + 1; j < words.ends[i]; j++) {
+                    currNode = addNode(currNode, words.chars[j]);
+                }
+                currNode.setTerminalNode(true);
+                start = words.ends[i];
+            }
+            return registry == null ? subtree : minimize(subtree, registry);
+        }
+    }
+
+    /**
+     * Key used for finding equivalent nodes while minimizing, compares
+     * children by identity since they have already been made unique.
+     */
+    private static class Signature {
+        private final TrieNode node;
+        private final int hash;
+
+        Signature(TrieNode node) {
+            this.node = node;
+            int h = node.getData() * 31 + (node.isTerminalNode() ? 1 : 0);
+            for(TrieNode child : node.getChildren()) {
+                h = h * 31 + System.identityHashCode(child);
+            }
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Signature)) return false;
+            TrieNode other = ((Signature)obj).node;
+            if(other.getData() != node.getData()) return false;
+            if(other.isTerminalNode() != node.isTerminalNode()) return false;
+            TrieNode[] children = node.getChildren();
+            TrieNode[] otherChildren = other.getChildren();
+            if(children.length != otherChildren.length) return false;
+            for(int i = 0; i < children.length; i++) {
+                if(children[i] != otherChildren[i]) return false;
+            }
+            return true;
+        }
+    }
 }
@@ -5,28 +5,63 @@ package scrabble; /**
  * associated with it. If a node is a "terminal node", then the path
  * from the root to that node represents a complete word in the dictionary.
  * Navigate it like a regular multi-edge tree.
+ * Children are indexed directly by letter: a bitmask records which letters
+ * have a child, and the children themselves sit in a compact array ordered
+ * by letter, so the position of a child is the number of set bits below it.
  */
 
-import java.util.Collection;
-import java.util.HashMap;
-
 public class TrieNode {
+    /**
+     * Marks the switch from the reversed prefix to the suffix in a GADDAG,
+     * it sits right after 'z' in the child mask.
+     */
+    public static final char SEPARATOR = '^';
+    private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
     private boolean terminalNode;
-    private HashMap<Character, TrieNode> children;
-    private Character data;
+    private int childMask; //bit i is set if there is a child for 'a'+i (26 for SEPARATOR)
+    private TrieNode[] children; //only the children that exist, in letter order
+    private char data;
 
-    public TrieNode(Character data) {
+    public TrieNode(char data) {
         this.data = data;
-        children = new HashMap<>();
+        children = NO_CHILDREN;
+        childMask = 0;
         terminalNode = false;
     }
 
     /**
-     * Add a new node to the trie
+     * @param c - character to get the index of
+     * @return - index of the letter in the child mask, or -1 if the
+     * character is not a lowercase letter or the separator
+     */
+    public static int indexOf(char c) {
+        if(c == SEPARATOR) return 26;
+        int index = c - 'a';
+        if(index < 0 || index > 25) return -1;
+        return index;
+    }
+
+    /**
+     * Add a new node to the trie, replaces the child with the same data
+     * if there already is one
      * @param node - node to add
      */
     public void addChild(TrieNode node) {
-        children.put(node.getData(), node);
+        int index = indexOf(node.getData());
+        if(index < 0) return;
+        int bit = 1 << index;
+        int pos = Integer.bitCount(childMask & (bit - 1));
+        if((childMask & bit) != 0) {
+            children[pos] = node;
+            return;
+        }
+        TrieNode[] newChildren = new TrieNode[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, pos);
+        newChildren[pos] = node;
+        System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+        children = newChildren;
+        childMask |= bit;
     }
 
     /**
@@ -34,22 +69,44 @@ public class TrieNode {
      * @param data - the data child should have
      * @return - the node if the child was found, null otherwise
      */
-    public TrieNode getChild(Character data) {
-        return children.get(data);
+    public TrieNode getChild(char data) {
+        int index = indexOf(data);
+        if(index < 0) return null;
+        int bit = 1 << index;
+        if((childMask & bit) == 0) return null;
+        return children[Integer.bitCount(childMask & (bit - 1))];
+    }
+
+    /**
+     * @return An array of characters representing what letters follow
+     * the current one, in alphabetical order
+     */
+    public char[] getChildrenData() {
+        char[] data = new char[children.length];
+        for(int i = 0; i < children.length; i++) data[i] = children[i].getData();
+        return data;
+    }
+
+    /**
+     * @return - bitmask of the letters that follow the current one, bit i
+     * is set for 'a'+i and bit 26 for the separator
+     */
+    public int getChildMask() {
+        return childMask;
     }
 
     /**
-     * @return A collection of characters representing what letters follow
-     * the current one
+     * @return - the children of the node in letter order, only to be used
+     * by the lexicon builders that need to rewire nodes
      */
-    public Collection<Character> getChildrenData() {
-        return children.keySet();
+    TrieNode[] getChildren() {
+        return children;
     }
 
     /**
      * @return - character that the current node has
      */
-    public Character getData() {
+    public char getData() {
         return data;
     }
 
@@ -58,8 +115,9 @@ public class TrieNode {
      *             data in it?
      * @return - true if child with given data, false otherwise
      */
-    public boolean contains(Character data) {
-        return children.containsKey(data);
+    public boolean contains(char data) {
+        int index = indexOf(data);
+        return index >= 0 && (childMask & (1 << index)) != 0;
     }
 
     /**
@@ -95,7 +153,7 @@ public class TrieNode {
 
         if(terminalNode) System.out.println(">>" + data);
         else System.out.println("->" + data);
-        for(TrieNode node : children.values()) {
+        for(TrieNode node : children) {
             node.printHelper(depth+1);
         }
     }
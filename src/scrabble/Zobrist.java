@@ -0,0 +1,29 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Random 64-bit keys for Zobrist hashing of boards and racks. A position
+ * hashes to the xor of the keys of everything in it, so putting something
+ * in or taking it out is a single xor with its key and the hash never has
+ * to be recomputed from scratch. The keys come from mixing the number of
+ * the thing being hashed (splitmix64) instead of from a table of random
+ * numbers, so they are the same on every board and in every run and cost
+ * no memory.
+ */
+
+final class Zobrist {
+    private Zobrist() {
+    }
+
+    /**
+     * @param id - number of the thing to get the key of, different
+     *           things must have different numbers
+     * @return - its key
+     */
+    static long key(long id) {
+        long z = (id + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
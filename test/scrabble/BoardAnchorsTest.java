@@ -0,0 +1,94 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Checks that the anchors Board.getAnchors keeps up to date from turn to
+ * turn, only redoing the squares around the tiles locked since the last
+ * call, are the same as anchors made from scratch: the same squares, cross
+ * checks and cross word points. The games are self-play games with a fixed
+ * shuffle of the tiles, checked after every move. Run with the classes of
+ * src and the resources on the class path, exits with an error if a check
+ * fails.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public class BoardAnchorsTest {
+    private static final String TILES = "aaaaaaaaabbccddddeeeeeeeeeeeeffggghhiiiiiiiiijkllll"
+            + "mmnnnnnnooooooooppqrrrrrrssssttttttuuuuvvwwxyyz**";
+    private static final int GAMES = 20;
+
+    public static void main(String[] args) {
+        Lexicon lexicon = PackedLexicon.pack(new TrieFileParser(ClassLoader.getSystemResourceAsStream("twl06.txt")).makeDawg());
+        Random random = new Random(16);
+        int moves = 0;
+        for(int i = 0; i < GAMES; i++) moves += playGame(lexicon, random, i);
+        System.out.println("BoardAnchorsTest passed, " + moves + " moves");
+    }
+
+    /**
+     * Plays a game, comparing the anchors after every move
+     * @return - how many moves were made
+     */
+    private static int playGame(Lexicon lexicon, Random random, int game) {
+        ArrayList<Character> bag = new ArrayList<>();
+        for(int i = 0; i < TILES.length(); i++) bag.add(TILES.charAt(i));
+        Collections.shuffle(bag, random);
+        Board board = new BoardSolver("scrabble_board.txt").makeBoard();
+        ComputerPlayer[] players = {new ComputerPlayer(board, lexicon), new ComputerPlayer(board, lexicon)};
+        for(ComputerPlayer player : players) draw(player, bag);
+        int moves = 0;
+        int passes = 0;
+        for(int turn = 0; passes < 2 && players[turn].getHandSize() > 0; turn = 1 - turn) {
+            players[turn].makeMove();
+            if(!players[turn].getMoveInfo().getMoveSuccess()) {
+                passes++;
+                continue;
+            }
+            passes = 0;
+            moves++;
+            checkAnchors(board, lexicon, "game " + game + ", move " + moves);
+            draw(players[turn], bag);
+        }
+        return moves;
+    }
+
+    /**
+     * Compares the anchors the board keeps with ones made on a copy of it
+     */
+    private static void checkAnchors(Board board, Lexicon lexicon, String what) {
+        AnchorSet kept = board.getAnchors(lexicon);
+        Board copy = new BoardSolver("scrabble_board.txt").makeBoard();
+        for(int row = 0; row < board.getSize(); row++) {
+            for(int col = 0; col < board.getSize(); col++) {
+                if(board.getTile(row, col).isEmpty()) continue;
+                copy.placeTile(row, col, board.getTile(row, col).getData());
+                copy.getTile(row, col).lockTile();
+            }
+        }
+        AnchorSet fresh = copy.getAnchors(lexicon);
+        if(!Arrays.equals(kept.toArray(), fresh.toArray())) {
+            throw new AssertionError(what + ": anchor squares differ on\n" + board);
+        }
+        for(int square : fresh.toArray()) {
+            boolean same = kept.getHCheckMask(square) == fresh.getHCheckMask(square)
+                    && kept.getVCheckMask(square) == fresh.getVCheckMask(square)
+                    && kept.getHCrossSum(square) == fresh.getHCrossSum(square)
+                    && kept.getVCrossSum(square) == fresh.getVCrossSum(square);
+            if(!same) {
+                throw new AssertionError(what + ": cross checks differ at (" + fresh.getRow(square) + ","
+                        + fresh.getCol(square) + ") on\n" + board);
+            }
+        }
+    }
+
+    /**
+     * Fills a player's hand back up to seven tiles
+     */
+    private static void draw(ComputerPlayer player, ArrayList<Character> bag) {
+        while(player.getHandSize() < 7 && !bag.isEmpty()) player.addToHand(bag.remove(bag.size() - 1));
+    }
+}
@@ -0,0 +1,97 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Checks Board.apply and Board.undo, in particular that the anchors come
+ * out the same as ones made from scratch after moves are taken back.
+ * Run with the classes of src on the class path, exits with an error if a
+ * check fails.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+public class BoardUndoTest {
+    private static final String WORDS = "at\nate\ncat\ncats\neat\nhat\nhats\nsat\nseat\ntea\nteas\n";
+
+    public static void main(String[] args) {
+        Lexicon lexicon = PackedLexicon.pack(new TrieFileParser(
+                new ByteArrayInputStream(WORDS.getBytes(StandardCharsets.US_ASCII))).makeTree());
+        undoAnchorsMadeAfterMove(lexicon);
+        undoRestoresBoard(lexicon);
+        System.out.println("BoardUndoTest passed");
+    }
+
+    /**
+     * Anchors made after the move that is taken back have to be made again
+     * instead of being updated with no lexicon
+     */
+    private static void undoAnchorsMadeAfterMove(Lexicon lexicon) {
+        Board board = new Board(15);
+        board.apply(move("cat", 7, 6, Board.Direction.ACROSS));
+        board.getAnchors(lexicon);
+        check(board.undo(), "undo of the first move");
+        board.apply(move("hat", 7, 6, Board.Direction.ACROSS));
+        checkAnchors(board, lexicon, "anchors after apply, getAnchors, undo, apply");
+        board.undo();
+        checkAnchors(board, lexicon, "anchors after the second undo");
+    }
+
+    /**
+     * Moves applied on top of each other come off in reverse order and
+     * leave the board and its anchors the way they were
+     */
+    private static void undoRestoresBoard(Lexicon lexicon) {
+        Board board = new Board(15);
+        board.apply(move("cat", 7, 6, Board.Direction.ACROSS));
+        String before = board.toString();
+        long hash = board.getHash();
+        board.getAnchors(lexicon);
+        board.apply(move("cats", 7, 6, Board.Direction.ACROSS));
+        board.apply(move("tea", 7, 8, Board.Direction.DOWN));
+        checkAnchors(board, lexicon, "anchors after two applies");
+        board.undo();
+        board.undo();
+        check(board.toString().equals(before), "board after undoing both moves");
+        check(board.getHash() == hash, "hash after undoing both moves");
+        check(board.getUndoDepth() == 1, "only the first move left to undo");
+        checkAnchors(board, lexicon, "anchors after undoing everything");
+    }
+
+    /**
+     * Compares the anchors the board keeps with ones made on a copy of it
+     */
+    private static void checkAnchors(Board board, Lexicon lexicon, String what) {
+        AnchorSet kept = board.getAnchors(lexicon);
+        Board copy = new Board(board.getSize());
+        for(int row = 0; row < board.getSize(); row++) {
+            for(int col = 0; col < board.getSize(); col++) {
+                if(board.getTile(row, col).isEmpty()) continue;
+                copy.placeTile(row, col, board.getTile(row, col).getData());
+                copy.getTile(row, col).lockTile();
+            }
+        }
+        AnchorSet fresh = copy.getAnchors(lexicon);
+        check(java.util.Arrays.equals(kept.toArray(), fresh.toArray()), what + ": squares");
+        for(int square : fresh.toArray()) {
+            check(kept.getHCheckMask(square) == fresh.getHCheckMask(square)
+                    && kept.getVCheckMask(square) == fresh.getVCheckMask(square)
+                    && kept.getHCrossSum(square) == fresh.getHCrossSum(square)
+                    && kept.getVCrossSum(square) == fresh.getVCrossSum(square), what + ": cross checks");
+        }
+    }
+
+    private static MoveInfo move(String word, int row, int col, Board.Direction direction) {
+        MoveInfo move = new MoveInfo();
+        move.setWord(word);
+        move.setRow(row);
+        move.setCol(col);
+        move.setDirection(direction);
+        move.setMoveSuccess(true);
+        return move;
+    }
+
+    private static void check(boolean condition, String what) {
+        if(!condition) throw new AssertionError(what);
+    }
+}
@@ -0,0 +1,83 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Checks that LexiconRegistry hands out lexicons by name and that a
+ * dictionary that fails to load reaches the caller as the documented
+ * UncheckedIOException, after which it can be loaded again, and that
+ * registering a name again with another dictionary loads that one. Run
+ * with the classes of src on the class path, exits with an error if a
+ * check fails.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+
+public class LexiconRegistryTest {
+    public static void main(String[] args) throws IOException {
+        File dictionary = File.createTempFile("registry", ".txt");
+        dictionary.deleteOnExit();
+        LexiconRegistry registry = new LexiconRegistry();
+        String missing = dictionary.getPath() + ".missing";
+
+        registry.register("test", missing);
+        for(int i = 0; i < 2; i++) {
+            try {
+                registry.acquire("test", PackedLexicon.TRIE);
+                throw new AssertionError("acquire of a missing dictionary returned");
+            }
+            catch(UncheckedIOException e) {
+                //the cause the loader threw, not wrapped in a CompletionException
+            }
+        }
+
+        try(PrintWriter writer = new PrintWriter(dictionary)) {
+            writer.println("cat");
+            writer.println("dog");
+        }
+        registry.register("test", dictionary.getPath());
+        Lexicon lexicon = registry.acquire("test", PackedLexicon.TRIE);
+        check(contains(lexicon, "cat") && !contains(lexicon, "cow"), "lexicon loaded after a failed load");
+        check(registry.acquire("test", PackedLexicon.TRIE) == lexicon, "second acquire shares the lexicon");
+        registry.release("test", PackedLexicon.TRIE);
+        registry.release("test", PackedLexicon.TRIE);
+
+        File other = File.createTempFile("registry", ".txt");
+        other.deleteOnExit();
+        try(PrintWriter writer = new PrintWriter(other)) {
+            writer.println("cow");
+        }
+        registry.register("test", other.getPath());
+        lexicon = registry.acquire("test", PackedLexicon.TRIE);
+        check(contains(lexicon, "cow") && !contains(lexicon, "cat"), "lexicon of the dictionary registered again");
+        try {
+            registry.register("test", dictionary.getPath());
+            throw new AssertionError("a name in use was registered again");
+        }
+        catch(IllegalStateException e) {
+            //expected, the game using it still has to release it
+        }
+        registry.release("test", PackedLexicon.TRIE);
+
+        try {
+            registry.acquire("nothing", PackedLexicon.TRIE);
+            throw new AssertionError("acquire of an unregistered name returned");
+        }
+        catch(IllegalArgumentException e) {
+            //expected
+        }
+        System.out.println("LexiconRegistryTest passed");
+    }
+
+    private static boolean contains(Lexicon lexicon, String word) {
+        int node = lexicon.getRoot();
+        for(int i = 0; i < word.length() && node != Lexicon.NONE; i++) node = lexicon.getChild(node, word.charAt(i));
+        return node != Lexicon.NONE && lexicon.isTerminal(node);
+    }
+
+    private static void check(boolean condition, String what) {
+        if(!condition) throw new AssertionError(what);
+    }
+}
@@ -0,0 +1,127 @@
+package scrabble;
+
+/**
+ * Andrew Geyko
+ * Checks that the ways ComputerPlayer can search for its move all pick the
+ * very same move: the trie search and the GADDAG, with and without
+ * pruning, one anchor after another or in parallel. The positions are the
+ * ones of a few self-play games with a fixed shuffle of the tiles, so every
+ * run checks the same boards and racks. Run with the classes of src and
+ * the resources on the class path, exits with an error if a check fails.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+public class MoveSearchTest {
+    private static final String TILES = "aaaaaaaaabbccddddeeeeeeeeeeeeffggghhiiiiiiiiijkllll"
+            + "mmnnnnnnooooooooppqrrrrrrssssttttttuuuuvvwwxyyz**";
+    private static final int GAMES = 4;
+
+    private static Lexicon trie;
+    private static Lexicon gaddag;
+
+    public static void main(String[] args) {
+        trie = PackedLexicon.pack(new TrieFileParser(ClassLoader.getSystemResourceAsStream("twl06.txt")).makeDawg());
+        gaddag = PackedLexicon.pack(new TrieFileParser(ClassLoader.getSystemResourceAsStream("twl06.txt")).makeGaddag());
+        Random random = new Random(18);
+        int positions = 0;
+        for(int i = 0; i < GAMES; i++) positions += playGame(random);
+        System.out.println("MoveSearchTest passed, " + positions + " positions");
+    }
+
+    /**
+     * Plays a game with the plain trie search, checking every position
+     * against the other ways of searching
+     * @return - how many positions were checked
+     */
+    private static int playGame(Random random) {
+        ArrayList<Character> bag = new ArrayList<>();
+        for(int i = 0; i < TILES.length(); i++) bag.add(TILES.charAt(i));
+        Collections.shuffle(bag, random);
+        Board board = new BoardSolver("scrabble_board.txt").makeBoard();
+        String[] racks = {draw("", bag), draw("", bag)};
+        int positions = 0;
+        int passes = 0;
+        for(int turn = 0; passes < 2 && !racks[turn].isEmpty(); turn = 1 - turn) {
+            Board next = copy(board);
+            ComputerPlayer expected = player(next, racks[turn], false, false, false);
+            expected.makeMove();
+            MoveInfo move = expected.getMoveInfo();
+            check(expected, racks[turn], board, move, true, false, false, "trie search with pruning");
+            check(expected, racks[turn], board, move, false, true, false, "GADDAG");
+            check(expected, racks[turn], board, move, true, true, false, "GADDAG with pruning");
+            check(expected, racks[turn], board, move, false, false, true, "parallel trie search");
+            check(expected, racks[turn], board, move, true, true, true, "parallel GADDAG with pruning");
+            positions++;
+            if(!move.getMoveSuccess()) {
+                passes++;
+                continue;
+            }
+            passes = 0;
+            board = next;
+            racks[turn] = draw(expected.getHandString(), bag);
+        }
+        return positions;
+    }
+
+    /**
+     * Makes the move of a position with one way of searching and compares
+     * it with the move the plain trie search made
+     */
+    private static void check(ComputerPlayer expected, String rack, Board board, MoveInfo move,
+                              boolean pruning, boolean useGaddag, boolean parallel, String what) {
+        ComputerPlayer player = player(copy(board), rack, pruning, useGaddag, parallel);
+        player.makeMove();
+        MoveInfo other = player.getMoveInfo();
+        boolean same = other.getMoveSuccess() == move.getMoveSuccess()
+                && other.getWord().equals(move.getWord())
+                && other.getScore() == move.getScore()
+                && (!move.getMoveSuccess() || (other.getRow() == move.getRow() && other.getCol() == move.getCol()
+                && other.getDirection() == move.getDirection()));
+        if(!same) {
+            throw new AssertionError(what + " played " + other.getWord() + " for " + other.getScore()
+                    + " instead of " + move.getWord() + " for " + move.getScore() + " with " + rack
+                    + " on\n" + board);
+        }
+        if(!player.getHandString().equals(expected.getHandString())) {
+            throw new AssertionError(what + " kept " + player.getHandString() + " instead of "
+                    + expected.getHandString());
+        }
+    }
+
+    private static ComputerPlayer player(Board board, String rack, boolean pruning, boolean useGaddag,
+                                         boolean parallel) {
+        ComputerPlayer player = new ComputerPlayer(board, trie);
+        player.setGaddag(useGaddag ? gaddag : null);
+        player.setPruning(pruning);
+        player.setParallel(parallel);
+        for(int i = 0; i < rack.length(); i++) player.addToHand(rack.charAt(i));
+        return player;
+    }
+
+    /**
+     * @return - the rack filled back up to seven tiles from the bag
+     */
+    private static String draw(String rack, ArrayList<Character> bag) {
+        StringBuilder tiles = new StringBuilder(rack);
+        while(tiles.length() < 7 && !bag.isEmpty()) tiles.append(bag.remove(bag.size() - 1));
+        return tiles.toString();
+    }
+
+    /**
+     * @return - a board with the same squares and the same locked tiles
+     */
+    private static Board copy(Board board) {
+        Board copy = new BoardSolver("scrabble_board.txt").makeBoard();
+        for(int row = 0; row < board.getSize(); row++) {
+            for(int col = 0; col < board.getSize(); col++) {
+                if(board.getTile(row, col).isEmpty()) continue;
+                copy.placeTile(row, col, board.getTile(row, col).getData());
+                copy.getTile(row, col).lockTile();
+            }
+        }
+        return copy;
+    }
+}